@@ -0,0 +1,41 @@
+package captcha;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+final class AllocationCheck {
+
+    private static final int WARMUP_CALLS = 200_000;
+    private static final int MEASURED_CALLS = 1_000_000;
+
+    private AllocationCheck() {
+    }
+
+    public static void main(String[] args) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            throw new IllegalStateException("Thread allocation counters are not supported by this JVM");
+        }
+        com.sun.management.ThreadMXBean counters = (com.sun.management.ThreadMXBean) threads;
+        long seed = args.length > 0 ? Long.decode(args[0]) : 1L;
+        int checksum = run(seed, WARMUP_CALLS);
+        long before = counters.getCurrentThreadAllocatedBytes();
+        long baseline = counters.getCurrentThreadAllocatedBytes() - before;
+        before = counters.getCurrentThreadAllocatedBytes();
+        checksum += run(seed + WARMUP_CALLS, MEASURED_CALLS);
+        long allocated = counters.getCurrentThreadAllocatedBytes() - before - baseline;
+        System.out.println("generateCaptchaData: " + MEASURED_CALLS + " calls, " + allocated + " bytes allocated"
+                + " (checksum " + checksum + ")");
+        if (allocated > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static int run(long seed, int calls) {
+        int checksum = 0;
+        for (int i = 0; i < calls; i++) {
+            checksum += CaptchaGenerator.generateAnswer(seed + i);
+        }
+        return checksum;
+    }
+}
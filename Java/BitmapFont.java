@@ -0,0 +1,187 @@
+package captcha;
+
+final class BitmapFont {
+
+    private static final int EM_SIZE = 16;
+    private static final int ASCENT = 15;
+    private static final int HEIGHT = 19;
+    private static final char FIRST_CHAR = ' ';
+    private static final char LAST_CHAR = '~';
+
+    private static final String[] GLYPH_DATA = {
+        "5,0,0,0,0,", // space
+        "6,2,-12,1,12,888888880088", // !
+        "6,1,-12,4,4,9999", // "
+        "13,1,-11,11,11,0c80880987fe190110130ffc320220260", // #
+        "10,2,-12,7,14,10107cd29090701c1212967c1010", // $
+        "15,1,-12,13,12,704088408880898089007200027004880c88088810881070", // %
+        "12,1,-12,10,12,3c06204004002005008848448248184183e4", // &
+        "3,1,-12,1,4,8888", // '
+        "6,1,-12,4,14,36448888884463", // (
+        "6,1,-12,4,14,c622111111226c", // )
+        "8,1,-12,7,8,1010927c38d61010", // *
+        "13,2,-9,9,9,080080080080ff8080080080080", // +
+        "5,1,-2,2,4,4448", // ,
+        "6,1,-5,4,1,f", // -
+        "5,2,-2,1,2,88", // .
+        "5,0,-12,5,13,0808101010202020404040c080", // /
+        "10,1,-12,8,12,3c424281818181818142423c", // 0
+        "10,2,-12,7,12,70d0101010101010101010fe", // 1
+        "10,1,-12,7,12,78c4820202040810204080fe", // 2
+        "10,1,-12,8,12,7c830101033c03010101827c", // 3
+        "10,1,-12,9,12,0600a00a0120220420420820ff8020020020", // 4
+        "10,1,-12,8,12,7e4040407c4201010101827c", // 5
+        "10,1,-12,8,12,1c624080bcc281818181423c", // 6
+        "10,1,-12,8,12,ff0102020404080808101020", // 7
+        "10,1,-12,8,12,3cc38181c33cc3818181423c", // 8
+        "10,1,-12,8,12,3c4282818181433d01024638", // 9
+        "5,2,-8,1,8,88000088", // :
+        "5,1,-8,2,10,4400004448", // ;
+        "13,2,-9,10,9,0040381c07008007001c0038004", // <
+        "13,2,-7,10,4,ffc000000ffc", // =
+        "13,2,-9,10,9,8007000e00380040380e0700800", // >
+        "9,1,-12,6,12,788404040c18302020002020", // ?
+        "16,1,-12,14,14,0fc01830201847a8c8649024902490249024c86847b02000183007e0", // @
+        "11,0,-12,11,12,0400400a00a01101102082083f8404404802", // A
+        "11,1,-12,9,12,fe0818808808818ff0818808808808810fe0", // B
+        "11,1,-12,9,12,1f02184008008008008008008004002181f0", // C
+        "12,1,-12,10,12,fe0830808804804804804804804808830fe0", // D
+        "10,1,-12,8,12,ff80808080ff8080808080ff", // E
+        "9,1,-12,7,12,fe80808080fc808080808080", // F
+        "12,1,-12,10,12,1f820c40480080080083c8048044042041f8", // G
+        "12,1,-12,10,12,804804804804804ffc804804804804804804", // H
+        "5,2,-12,1,12,888888888888", // I
+        "5,0,-12,3,15,22222222222222c", // J
+        "10,1,-12,8,12,8182848890e0a09088848281", // K
+        "9,1,-12,7,12,8080808080808080808080fe", // L
+        "13,1,-12,11,12,c06c06a0aa0aa0a9129128a28a2842802802", // M
+        "12,1,-12,10,12,c04a04a0490488488484482482481481480c", // N
+        "13,1,-12,11,12,1f02084048028028028028028024042081f0", // O
+        "10,1,-12,8,12,fc8281818182fc8080808080", // P
+        "13,1,-12,11,14,1f020840480280280280280280240420c1f0008004", // Q
+        "11,1,-12,9,12,fc0820810810810820fe0820810810808808", // R
+        "10,1,-12,8,12,3cc6808080701e030181c37c", // S
+        "9,0,-12,9,12,ff8080080080080080080080080080080080", // T
+        "12,1,-12,10,12,8048048048048048048048048048044083f0", // U
+        "11,0,-12,11,12,8028024044042082081101101100a00a0040", // V
+        "17,1,-12,15,12,810281024284428442842288244824481450145008200820", // W
+        "11,1,-12,9,12,c18410220220140080080140220220410808", // X
+        "9,0,-12,9,12,808410220220140080080080080080080080", // Y
+        "12,1,-12,10,12,ffc004008010020040080100200400800ffc", // Z
+        "6,1,-12,3,14,e888888888888e", // [
+        "5,0,-12,5,13,80c04040402020201010100808", // backslash
+        "6,2,-12,3,14,e222222222222e", // ]
+        "13,3,-12,8,4,183c4281", // ^
+        "8,0,3,8,1,ff", // _
+        "8,1,-13,4,3,c63", // `
+        "9,1,-9,7,9,3c46027ec28282c67a", // a
+        "10,1,-12,8,12,808080bcc28181818181c2bc", // b
+        "9,1,-9,7,9,3c428080808080423c", // c
+        "10,1,-12,8,12,0101013d438181818181433d", // d
+        "9,1,-9,7,9,38448282fe8080423c", // e
+        "6,1,-12,5,12,384040f04040404040404040", // f
+        "10,1,-9,8,12,3d438181818181433d01423c", // g
+        "10,1,-12,8,12,808080bcc281818181818181", // h
+        "3,1,-12,1,12,880888888888", // i
+        "3,-1,-12,3,15,22022222222222c", // j
+        "9,1,-12,7,12,80808082848890e090888482", // k
+        "3,1,-12,1,12,888888888888", // l
+        "15,1,-9,13,9,bcf0c7188208820882088208820882088208", // m
+        "10,1,-9,8,9,bcc281818181818181", // n
+        "10,1,-9,8,9,3c428181818181423c", // o
+        "10,1,-9,8,12,bcc28181818181c2bc808080", // p
+        "10,1,-9,8,12,3d438181818181433d010101", // q
+        "7,1,-9,5,9,b8c080808080808080", // r
+        "9,1,-9,7,9,7c8280c0780602827c", // s
+        "6,0,-11,5,11,4040f84040404040404038", // t
+        "10,1,-9,8,9,81818181818181433d", // u
+        "9,0,-9,9,9,8088084104102202201401c0080", // v
+        "13,0,-9,13,9,8208820845104510489028a028a010401040", // w
+        "10,1,-9,8,9,c342242418242442c3", // x
+        "9,0,-9,9,12,8084104102102202201401400c0080080700", // y
+        "9,1,-9,7,9,fe02040810204080fe", // z
+        "10,2,-12,5,15,18202020202020c020202020202018", // {
+        "5,2,-12,1,16,8888888888888888", // |
+        "10,2,-12,5,15,c020202020202018202020202020c0", // }
+        "13,2,-6,10,2,784878" // ~
+    };
+
+    private static final int[] BASE_ADVANCES = new int[GLYPH_DATA.length];
+    private static final GlyphAtlas.Glyph[] BASE_GLYPHS = new GlyphAtlas.Glyph[GLYPH_DATA.length];
+
+    static {
+        for (int i = 0; i < GLYPH_DATA.length; i++) {
+            String[] fields = GLYPH_DATA[i].split(",", -1);
+            int width = Integer.parseInt(fields[3]);
+            int height = Integer.parseInt(fields[4]);
+            String rows = fields[5];
+            int digits = (width + 3) / 4;
+            byte[] mask = new byte[width * height];
+            for (int y = 0; y < height; y++) {
+                long bits = Long.parseLong(rows.substring(y * digits, (y + 1) * digits), 16);
+                for (int x = 0; x < width; x++) {
+                    mask[y * width + x] = (byte) ((bits >>> (digits * 4 - 1 - x)) & 1);
+                }
+            }
+            BASE_ADVANCES[i] = Integer.parseInt(fields[0]);
+            BASE_GLYPHS[i] = new GlyphAtlas.Glyph(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    width, height, mask);
+        }
+    }
+
+    private BitmapFont() {
+    }
+
+    static GlyphAtlas.Face face(boolean bold, int size) {
+        return new BitmapFace(bold, size);
+    }
+
+    private static int slot(char ch) {
+        return ch >= FIRST_CHAR && ch <= LAST_CHAR ? ch - FIRST_CHAR : '?' - FIRST_CHAR;
+    }
+
+    private static final class BitmapFace extends GlyphAtlas.Face {
+
+        private final double scale;
+        private final int emboldening;
+
+        BitmapFace(boolean bold, int size) {
+            super((int) Math.round(ASCENT * (double) size / EM_SIZE), (int) Math.round(HEIGHT * (double) size / EM_SIZE));
+            this.scale = (double) size / EM_SIZE;
+            this.emboldening = bold ? Math.max(1, (int) Math.round(size / 16.0)) : 0;
+            initAdvances();
+        }
+
+        @Override
+        int advance(char ch) {
+            return (int) Math.round(BASE_ADVANCES[slot(ch)] * scale) + emboldening;
+        }
+
+        @Override
+        GlyphAtlas.Glyph rasterize(char ch, double angle) {
+            GlyphAtlas.Glyph base = BASE_GLYPHS[slot(ch)];
+            if (base.width == 0) {
+                return base;
+            }
+            int left = (int) Math.round(base.offsetX * scale);
+            int top = (int) Math.round(base.offsetY * scale);
+            int scaledWidth = Math.max(1, (int) Math.round((base.offsetX + base.width) * scale) - left);
+            int scaledHeight = Math.max(1, (int) Math.round((base.offsetY + base.height) * scale) - top);
+            int width = scaledWidth + emboldening;
+            byte[] mask = new byte[width * scaledHeight];
+            for (int y = 0; y < scaledHeight; y++) {
+                int sy = y * base.height / scaledHeight;
+                for (int x = 0; x < scaledWidth; x++) {
+                    int sx = x * base.width / scaledWidth;
+                    if (base.mask[sy * base.width + sx] != 0) {
+                        for (int b = 0; b <= emboldening; b++) {
+                            mask[y * width + x + b] = 1;
+                        }
+                    }
+                }
+            }
+            GlyphAtlas.Glyph glyph = new GlyphAtlas.Glyph(left, top, width, scaledHeight, mask);
+            return angle == 0 ? glyph : GlyphAtlas.rotate(glyph, angle, charWidth(ch) / 2);
+        }
+    }
+}
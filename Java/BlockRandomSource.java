@@ -0,0 +1,67 @@
+package captcha;
+
+final class BlockRandomSource implements RandomSource {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int BLOCK_SIZE = 64;
+
+    private final int[] block = new int[BLOCK_SIZE];
+    private long state;
+    private int position = BLOCK_SIZE;
+
+    void reseed(long seed) {
+        state = seed;
+        position = BLOCK_SIZE;
+    }
+
+    void split(BlockRandomSource child) {
+        child.reseed(mix(nextLong()));
+    }
+
+    @Override
+    public int nextInt() {
+        if (position == BLOCK_SIZE) {
+            refill();
+        }
+        return block[position++];
+    }
+
+    @Override
+    public long nextLong() {
+        return ((long) nextInt() << 32) | (nextInt() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive");
+        }
+        return (int) (((nextInt() & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+
+    @Override
+    public int nextInt(int origin, int bound) {
+        if (origin >= bound) {
+            throw new IllegalArgumentException("Bound must be greater than origin");
+        }
+        return origin + (int) (((nextInt() & 0xFFFFFFFFL) * ((long) bound - origin)) >>> 32);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void refill() {
+        long s = state;
+        for (int i = 0; i < BLOCK_SIZE; i += 2) {
+            s += GOLDEN_GAMMA;
+            long z = mix(s);
+            block[i] = (int) (z >>> 32);
+            block[i + 1] = (int) z;
+        }
+        state = s;
+        position = 0;
+    }
+}
@@ -0,0 +1,26 @@
+package captcha;
+
+interface CaptchaCanvas {
+
+    void fillRect(int x, int y, int width, int height, int rgb, int alpha);
+
+    void drawLine(int x1, int y1, int x2, int y2, float strokeWidth, int rgb, int alpha);
+
+    void drawWave(int y, int amplitude, int period, float strokeWidth, int rgb, int alpha);
+
+    void drawGlyph(GlyphAtlas.Glyph glyph, int x, int y, int rgb, int alpha);
+
+    void drawString(GlyphAtlas.Face face, char[] text, int length, int x, int y, int rgb, int alpha);
+
+    void drawPixels(byte[] source, int offset, int stride, int x, int y, int width, int height);
+
+    void setClip(int x, int y, int width, int height);
+
+    void resetClip();
+
+    CaptchaCanvas band(int y, int height);
+
+    byte[] pixels();
+
+    void dispose();
+}
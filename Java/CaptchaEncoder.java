@@ -0,0 +1,20 @@
+package captcha;
+
+public interface CaptchaEncoder {
+
+    int FORMAT_PNG = 0;
+    int FORMAT_GIF = 1;
+    int FORMAT_RAW = 2;
+
+    CaptchaEncoder PNG = PngEncoder.INSTANCE;
+    CaptchaEncoder GIF = GifEncoder.INSTANCE;
+    CaptchaEncoder RAW = RawPaletteEncoder.INSTANCE;
+
+    int formatId();
+
+    byte[] encode(byte[] pixels, int width, int height);
+
+    default int capabilityMask() {
+        return 1 << formatId();
+    }
+}
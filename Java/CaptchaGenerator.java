@@ -1,28 +1,22 @@
 package captcha;
 
-import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
-import javax.imageio.ImageWriter;
-import javax.imageio.stream.ImageOutputStream;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class CaptchaGenerator {
 
     private static final int BASE_WIDTH = 128;
     private static final int BASE_HEIGHT = 128;
-    private static final Color BACKGROUND_COLOR = Color.WHITE;
-    private static final Color GRAY_AREA_COLOR = new Color(108, 109, 103);
-    private static final Color TEXT_COLOR = new Color(129, 129, 129);
+    private static final int BAND_SPLIT = 48;
+    private static final int PARALLEL_MIN_ZOOM = 3;
+    private static final int BACKGROUND_COLOR = 0xFFFFFF;
+    private static final int GRAY_AREA_COLOR = 0x6C6D67;
+    private static final int GRAY_LINE_COLOR = 0x94958F;
+    private static final int TEXT_COLOR = 0x818181;
     private static final String CHARS = "qwertyuioopasdfghjklzxcvbnm0123456789";
     private static final String UPPER_CASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final String LOWER_CASE = "abcdefghijklmnopqrstuvwxyz";
@@ -30,142 +24,923 @@ public class CaptchaGenerator {
     private static final String SPECIAL_CHARS = "!@#$%&*+=?";
     private static final String ALL_CHARS = UPPER_CASE + LOWER_CASE + NUMBERS + SPECIAL_CHARS;
     private static final String SHADOW_CHARS = ".,;:'\"!?@#$%^&*()_+-=[]{}|\\";
-    private static final Color[] BRIGHT_COLORS = {
-        Color.YELLOW, Color.CYAN, Color.MAGENTA, Color.GREEN, Color.ORANGE, Color.PINK,
-        new Color(255, 255, 0), new Color(0, 255, 255), new Color(255, 0, 255),
-        new Color(0, 255, 0), new Color(255, 165, 0), new Color(255, 105, 180)
+    private static final int[] BRIGHT_COLORS = {
+        0xFFFF00, 0x00FFFF, 0xFF00FF, 0x00FF00, 0xFFC800, 0xFFAFAF,
+        0xFFFF00, 0x00FFFF, 0xFF00FF,
+        0x00FF00, 0xFFA500, 0xFF69B4
     };
 
+    private static final int MIN_PAIRS = 5;
+    private static final int MAX_PAIRS = 6;
+    private static final int DISPLAY_LENGTH = 6;
+    private static final long DIGIT_NIBBLES = 0x9876543210L;
+    private static final long DATA_SEED_SALT = 0x3C6EF372FE94F82BL;
+    private static final ThreadLocal<CaptchaContext> DATA_CONTEXTS = ThreadLocal.withInitial(CaptchaContext::new);
+    private static final int SCALE_MODE_COUNT = ScaleMode.values().length;
+    private static final int CONTEXT_SLOTS = RenderBackend.values().length * SCALE_MODE_COUNT * ZoomLayout.MAX_ZOOM;
+    private static final ThreadLocal<RenderContext[]> RENDER_CONTEXTS = ThreadLocal.withInitial(
+            () -> new RenderContext[CONTEXT_SLOTS]);
+
+    private static final CopyOnWriteArrayList<CaptchaStage> STAGES =
+            new CopyOnWriteArrayList<>(new CaptchaStage[] {CaptchaStage.DOT_NOISE, CaptchaStage.CORRUPTION});
+
+    private static volatile RenderBackend defaultBackend = RenderBackend.JAVA2D;
+    private static volatile ScaleMode defaultScaleMode = ScaleMode.NATIVE;
+
     private static class CaptchaContext {
 
-        String[] keys;
-        int[] values;
-        String decryptionKey;
-        String displayString;
+        final char[] keys = new char[MAX_PAIRS];
+        final int[] values = new int[MAX_PAIRS];
+        final char[] display = new char[DISPLAY_LENGTH];
+        final char[] pairText = new char[4];
+        final BlockRandomSource random = new BlockRandomSource();
+        int pairCount;
+        int answer;
+
+        int[] copyValues() {
+            return Arrays.copyOf(values, pairCount);
+        }
+    }
+
+    public static RenderBackend getDefaultBackend() {
+        return defaultBackend;
+    }
+
+    public static void setDefaultBackend(RenderBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Render backend cannot be null");
+        }
+        defaultBackend = backend;
+    }
+
+    public static ScaleMode getDefaultScaleMode() {
+        return defaultScaleMode;
+    }
+
+    public static void setDefaultScaleMode(ScaleMode scaleMode) {
+        if (scaleMode == null) {
+            throw new IllegalArgumentException("Scale mode cannot be null");
+        }
+        defaultScaleMode = scaleMode;
+    }
+
+    public static long getTextureSeed() {
+        return BackgroundBank.seed();
+    }
+
+    public static void setTextureSeed(long textureSeed) {
+        BackgroundBank.reseed(textureSeed);
+    }
 
-        CaptchaContext(String[] keys, int[] values, String decryptionKey, String displayString) {
-            this.keys = keys;
-            this.values = values;
-            this.decryptionKey = decryptionKey;
-            this.displayString = displayString;
+    public static void registerStage(CaptchaStage stage) {
+        if (stage == null) {
+            throw new IllegalArgumentException("Captcha stage cannot be null");
         }
+        STAGES.addIfAbsent(stage);
+    }
+
+    public static void unregisterStage(CaptchaStage stage) {
+        STAGES.remove(stage);
     }
 
     public static CaptchaResult createCaptchaImage(int zoomLevel) {
-        if (zoomLevel < 1 || zoomLevel > 4) {
-            throw new IllegalArgumentException("Zoom level must be between 1 and 4");
+        return createCaptchaImage(zoomLevel, defaultBackend, defaultScaleMode, CaptchaEncoder.PNG);
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, RenderBackend backend) {
+        return createCaptchaImage(zoomLevel, backend, defaultScaleMode, CaptchaEncoder.PNG);
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, ScaleMode scaleMode) {
+        return createCaptchaImage(zoomLevel, defaultBackend, scaleMode, CaptchaEncoder.PNG);
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, CaptchaEncoder encoder) {
+        return createCaptchaImage(zoomLevel, defaultBackend, defaultScaleMode, encoder);
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, RenderBackend backend, CaptchaEncoder encoder) {
+        return createCaptchaImage(zoomLevel, backend, defaultScaleMode, encoder);
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, long seed) {
+        return createCaptchaImage(zoomLevel, defaultBackend, defaultScaleMode, CaptchaEncoder.PNG, seed);
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder) {
+        return createCaptchaImage(zoomLevel, backend, scaleMode, encoder, RandomSource.strongSeed(),
+                RandomSource.strongSeed());
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder, long seed) {
+        return createCaptchaImage(zoomLevel, backend, scaleMode, encoder, seed, dataSeedOf(seed));
+    }
+
+    public static CaptchaResult createCaptchaImage(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder, long seed, long dataSeed) {
+        checkArguments(zoomLevel, backend, scaleMode, encoder);
+        RenderContext renderContext = null;
+        try {
+            renderContext = acquireRenderContext(backend, scaleMode, zoomLevel);
+            return renderCaptcha(renderContext, encoder, seed, dataSeed);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate CAPTCHA", e);
+        } finally {
+            if (renderContext != null) {
+                renderContext.release();
+            }
         }
+    }
 
-        int WIDTH = BASE_WIDTH * zoomLevel;
-        int HEIGHT = BASE_HEIGHT * zoomLevel;
+    public static CaptchaResult createLazyCaptcha(int zoomLevel) {
+        return createLazyCaptcha(zoomLevel, defaultBackend, defaultScaleMode, CaptchaEncoder.PNG,
+                RandomSource.strongSeed(), RandomSource.strongSeed());
+    }
 
-        BufferedImage image;
-        Graphics2D g2d = null;
+    public static CaptchaResult createLazyCaptcha(int zoomLevel, CaptchaEncoder encoder) {
+        return createLazyCaptcha(zoomLevel, defaultBackend, defaultScaleMode, encoder,
+                RandomSource.strongSeed(), RandomSource.strongSeed());
+    }
+
+    public static CaptchaResult createLazyCaptcha(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder, long seed) {
+        return createLazyCaptcha(zoomLevel, backend, scaleMode, encoder, seed, dataSeedOf(seed));
+    }
+
+    public static CaptchaResult createLazyCaptcha(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder, long seed, long dataSeed) {
+        checkArguments(zoomLevel, backend, scaleMode, encoder);
+        CaptchaContext context = DATA_CONTEXTS.get();
+        generateCaptchaData(context, dataSeed);
+        CaptchaSpec spec = new CaptchaSpec(zoomLevel, backend, scaleMode, encoder, seed, dataSeed);
+        return new CaptchaResult(null, context.copyValues(), context.answer, spec);
+    }
+
+    public static CaptchaResult regenerateCaptcha(CaptchaResult previous) {
+        return regenerateCaptcha(previous, RandomSource.strongSeed(), RandomSource.strongSeed());
+    }
+
+    public static CaptchaResult regenerateCaptcha(CaptchaResult previous, long retrySeed) {
+        return regenerateCaptcha(previous, retrySeed, dataSeedOf(retrySeed));
+    }
+
+    public static CaptchaResult regenerateCaptcha(CaptchaResult previous, long retrySeed, long retryDataSeed) {
+        if (previous == null) {
+            throw new IllegalArgumentException("Captcha result cannot be null");
+        }
+        CaptchaSpec spec = previous.spec();
+        if (spec == null) {
+            throw new IllegalArgumentException("Captcha result was not generated from a seed");
+        }
+        RenderContext renderContext = null;
         try {
-            image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_INDEXED);
-            g2d = image.createGraphics();
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-            g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
-            CaptchaContext context = generateCaptchaData();
-            g2d.setColor(BACKGROUND_COLOR);
-            g2d.fillRect(0, 0, WIDTH, HEIGHT);
-            g2d.setColor(GRAY_AREA_COLOR);
-            g2d.fillRect(0, 0, WIDTH, 32 * zoomLevel);
-            g2d.fillRect(0, 64 * zoomLevel, WIDTH, 54 * zoomLevel);
-            drawStringFillWidth(g2d, 0, 0, WIDTH, 32 * zoomLevel, true, false, zoomLevel);
-            drawStringFillWidth(g2d, 0, 64 * zoomLevel, WIDTH, 54 * zoomLevel, false, true, zoomLevel);
-            drawKeyValuePairs(g2d, 0, 64 * zoomLevel, WIDTH, 54 * zoomLevel, zoomLevel, context);
-
-            drawTopAreaString(g2d, 0, 0, WIDTH, 32 * zoomLevel, zoomLevel, context);
-            drawRandomLines(g2d, 0, 0, WIDTH, 32 * zoomLevel, true, zoomLevel);
-            drawRandomLines(g2d, 0, 64 * zoomLevel, WIDTH, 54 * zoomLevel, false, zoomLevel);
-            addDistortionEffects(g2d, WIDTH, HEIGHT, zoomLevel);
-            addImageCorruption(g2d, image, WIDTH, HEIGHT, zoomLevel);
-            byte[] imageBytes = compressImage(image);
-            int[] valuesCopy = context.values.clone();
-            return new CaptchaResult(imageBytes, valuesCopy, context.decryptionKey);
+            renderContext = acquireRenderContext(spec.backend, spec.scaleMode, spec.zoomLevel);
+            BlockRandomSource random = renderContext.random;
+            CaptchaContext context = renderContext.data;
+            generateCaptchaData(context, spec.dataSeed);
+            byte[] retainedRows = previous.retainedRows();
+            if (retainedRows == null) {
+                random.reseed(spec.seed);
+                drawImage(renderContext, context, random);
+            }
+            reshuffleDisplay(context, retryDataSeed);
+            random.reseed(retrySeed);
+            byte[] pixels = redrawTopStrip(renderContext, context, random);
+            int bottomOffset = BAND_SPLIT * renderContext.zoomLevel * BASE_WIDTH * renderContext.zoomLevel;
+            if (retainedRows == null) {
+                retainedRows = Arrays.copyOfRange(pixels, bottomOffset, pixels.length);
+            } else {
+                System.arraycopy(retainedRows, 0, pixels, bottomOffset, retainedRows.length);
+            }
+            byte[] imageBytes = encodeImage(renderContext, spec.encoder, pixels);
+            return new CaptchaResult(imageBytes, context.copyValues(), context.answer, spec.retry(retrySeed, retryDataSeed), retainedRows);
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate CAPTCHA", e);
         } finally {
-            if (g2d != null) {
-                g2d.dispose();
+            if (renderContext != null) {
+                renderContext.release();
             }
         }
     }
 
-    private static CaptchaContext generateCaptchaData() {
-        Random rand = ThreadLocalRandom.current();
-        int pairCount = 5 + rand.nextInt(2);
+    public static CaptchaRenderJob createRenderJob(int zoomLevel) {
+        return createRenderJob(zoomLevel, defaultBackend, defaultScaleMode, CaptchaEncoder.PNG,
+                RandomSource.strongSeed(), RandomSource.strongSeed());
+    }
+
+    public static CaptchaRenderJob createRenderJob(int zoomLevel, CaptchaEncoder encoder) {
+        return createRenderJob(zoomLevel, defaultBackend, defaultScaleMode, encoder, RandomSource.strongSeed(),
+                RandomSource.strongSeed());
+    }
+
+    public static CaptchaRenderJob createRenderJob(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder, long seed) {
+        return createRenderJob(zoomLevel, backend, scaleMode, encoder, seed, dataSeedOf(seed));
+    }
+
+    public static CaptchaRenderJob createRenderJob(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder, long seed, long dataSeed) {
+        checkArguments(zoomLevel, backend, scaleMode, encoder);
+        return new RenderJob(backend, scaleMode, zoomLevel, encoder, seed, dataSeed);
+    }
+
+    public static void warmUp(int zoomLevel) {
+        warmUp(zoomLevel, defaultBackend, defaultScaleMode);
+    }
+
+    public static void warmUp(int zoomLevel, RenderBackend backend, ScaleMode scaleMode) {
+        checkArguments(zoomLevel, backend, scaleMode);
+        ZoomLayout layout = ZoomLayout.of(RenderContext.renderZoom(scaleMode, zoomLevel), backend);
+        layout.prepareGlyphRows();
+        BackgroundBank.of(backend, layout);
+    }
+
+    public static CaptchaResult[] createCaptchaImages(int count, int zoomLevel) {
+        return createCaptchaImages(count, zoomLevel, defaultBackend, defaultScaleMode, CaptchaEncoder.PNG);
+    }
+
+    public static CaptchaResult[] createCaptchaImages(int count, int zoomLevel, CaptchaEncoder encoder) {
+        return createCaptchaImages(count, zoomLevel, defaultBackend, defaultScaleMode, encoder);
+    }
+
+    public static CaptchaResult[] createCaptchaImages(int count, int zoomLevel, RenderBackend backend,
+            ScaleMode scaleMode, CaptchaEncoder encoder) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Captcha count cannot be negative");
+        }
+        checkArguments(zoomLevel, backend, scaleMode, encoder);
+        CaptchaResult[] results = new CaptchaResult[count];
+        ForkJoinPool.commonPool().invoke(new BatchTask(results, 0, count, backend, scaleMode, zoomLevel, encoder));
+        return results;
+    }
+
+    private static void checkArguments(int zoomLevel, RenderBackend backend, ScaleMode scaleMode,
+            CaptchaEncoder encoder) {
+        checkArguments(zoomLevel, backend, scaleMode);
+        if (encoder == null) {
+            throw new IllegalArgumentException("Captcha encoder cannot be null");
+        }
+    }
+
+    private static void checkArguments(int zoomLevel, RenderBackend backend, ScaleMode scaleMode) {
+        if (zoomLevel < 1 || zoomLevel > 4) {
+            throw new IllegalArgumentException("Zoom level must be between 1 and 4");
+        }
+        if (backend == null) {
+            throw new IllegalArgumentException("Render backend cannot be null");
+        }
+        if (scaleMode == null) {
+            throw new IllegalArgumentException("Scale mode cannot be null");
+        }
+    }
 
-        String[] keys = generateRandomKeys(pairCount);
-        int[] values = generateRandomValues(pairCount);
-        StringBuilder displayResult = new StringBuilder();
-        for (int i = 0; i < 6; i++) {
-            int keyIndex = i % keys.length;
-            displayResult.append(keys[keyIndex]);
+    private static class RenderContext {
+
+        final CaptchaCanvas canvas;
+        final RenderBackend backend;
+        final ScaleMode scaleMode;
+        final ZoomLayout layout;
+        final int zoomLevel;
+        final int outputZoom;
+        final CaptchaContext data = new CaptchaContext();
+        final BlockRandomSource random = new BlockRandomSource();
+        final BlockRandomSource topRandom = new BlockRandomSource();
+        final BlockRandomSource bottomRandom = new BlockRandomSource();
+        final boolean shared;
+        byte[] scaled;
+        boolean inUse;
+
+        RenderContext(RenderBackend backend, ScaleMode scaleMode, int outputZoom, boolean shared) {
+            this.backend = backend;
+            this.scaleMode = scaleMode;
+            this.zoomLevel = renderZoom(scaleMode, outputZoom);
+            this.outputZoom = outputZoom;
+            this.shared = shared;
+            this.layout = ZoomLayout.of(zoomLevel, backend);
+            this.canvas = createCanvas(backend, BASE_WIDTH * zoomLevel, BASE_HEIGHT * zoomLevel);
         }
-        char[] displayChars = displayResult.toString().toCharArray();
-        for (int i = 0; i < displayChars.length; i++) {
-            int randomIndex = rand.nextInt(displayChars.length);
-            char temp = displayChars[i];
-            displayChars[i] = displayChars[randomIndex];
-            displayChars[randomIndex] = temp;
+
+        static int renderZoom(ScaleMode scaleMode, int outputZoom) {
+            return scaleMode == ScaleMode.UPSCALE ? 1 : outputZoom;
         }
-        String displayString = new String(displayChars);
-        Map<String, Integer> keyValueMap = new HashMap<>();
-        for (int i = 0; i < keys.length; i++) {
-            keyValueMap.put(keys[i], values[i]);
+
+        BackgroundBank background() {
+            return BackgroundBank.of(backend, layout);
         }
-        StringBuilder decryptionResult = new StringBuilder();
-        for (char ch : displayChars) {
-            String key = String.valueOf(ch);
-            Integer value = keyValueMap.get(key);
-            if (value != null) {
-                decryptionResult.append(value);
+
+        void release() {
+            if (shared) {
+                canvas.resetClip();
+                inUse = false;
             } else {
-                decryptionResult.append("0");
+                canvas.dispose();
+            }
+        }
+    }
+
+    private static RenderContext acquireRenderContext(RenderBackend backend, ScaleMode scaleMode, int zoomLevel) {
+        RenderContext[] contexts = RENDER_CONTEXTS.get();
+        int slot = contextSlot(backend, scaleMode, zoomLevel);
+        RenderContext renderContext = contexts[slot];
+        if (renderContext == null) {
+            renderContext = new RenderContext(backend, scaleMode, zoomLevel, true);
+            contexts[slot] = renderContext;
+        } else if (renderContext.inUse) {
+            return new RenderContext(backend, scaleMode, zoomLevel, false);
+        }
+        renderContext.inUse = true;
+        return renderContext;
+    }
+
+    private static int contextSlot(RenderBackend backend, ScaleMode scaleMode, int zoomLevel) {
+        return ((backend.ordinal() * SCALE_MODE_COUNT) + scaleMode.ordinal()) * ZoomLayout.MAX_ZOOM + zoomLevel - 1;
+    }
+
+    private static class BackgroundBank {
+
+        private static final int TEXTURE_COUNT = 16;
+        private static final int BANK_COUNT = RenderBackend.values().length * ZoomLayout.MAX_ZOOM;
+        private static final Object LOCK = new Object();
+        private static volatile long textureSeed = initialSeed();
+        private static volatile BackgroundBank[] banks = new BackgroundBank[BANK_COUNT];
+
+        final byte[][] textures = new byte[TEXTURE_COUNT][];
+        final int stride;
+        private final RenderBackend backend;
+        private final ZoomLayout layout;
+        private final long seed;
+        private int built;
+        private volatile boolean complete;
+
+        private BackgroundBank(RenderBackend backend, ZoomLayout layout, long seed) {
+            this.backend = backend;
+            this.layout = layout;
+            this.seed = seed;
+            this.stride = 2 * BASE_WIDTH * layout.zoomLevel;
+        }
+
+        static BackgroundBank of(RenderBackend backend, ZoomLayout layout) {
+            BackgroundBank bank = pending(backend, layout);
+            if (!bank.complete) {
+                synchronized (bank) {
+                    while (bank.built < TEXTURE_COUNT) {
+                        bank.buildTexture();
+                    }
+                }
+            }
+            return bank;
+        }
+
+        static BackgroundBank pending(RenderBackend backend, ZoomLayout layout) {
+            int slot = backend.ordinal() * ZoomLayout.MAX_ZOOM + layout.zoomLevel - 1;
+            BackgroundBank bank = banks[slot];
+            if (bank == null) {
+                synchronized (LOCK) {
+                    bank = banks[slot];
+                    if (bank == null) {
+                        bank = new BackgroundBank(backend, layout, textureSeed);
+                        banks[slot] = bank;
+                    }
+                }
+            }
+            return bank;
+        }
+
+        static long seed() {
+            return textureSeed;
+        }
+
+        static void reseed(long seed) {
+            synchronized (LOCK) {
+                textureSeed = seed;
+                banks = new BackgroundBank[BANK_COUNT];
+            }
+        }
+
+        boolean buildNext() {
+            if (complete) {
+                return true;
+            }
+            synchronized (this) {
+                if (built < TEXTURE_COUNT) {
+                    buildTexture();
+                }
+                return complete;
+            }
+        }
+
+        private static long initialSeed() {
+            String value = System.getProperty("captcha.textureSeed");
+            return value == null ? RandomSource.strongSeed() : Long.decode(value);
+        }
+
+        void copyWindow(CaptchaCanvas canvas, int y, int height, RandomSource rand) {
+            byte[] texture = textures[rand.nextInt(TEXTURE_COUNT)];
+            int offsetX = rand.nextInt(stride / 2 + 1);
+            canvas.drawPixels(texture, y * stride + offsetX, stride, 0, y, stride / 2, height);
+        }
+
+        private void buildTexture() {
+            int zoomLevel = layout.zoomLevel;
+            char[] text = new char[2 * Math.max(layout.topFill.charsPerLine, layout.bottomFill.charsPerLine)];
+            BlockRandomSource random = new BlockRandomSource();
+            random.reseed(seed + built);
+            CaptchaCanvas canvas = createCanvas(backend, stride, BASE_HEIGHT * zoomLevel);
+            try {
+                canvas.fillRect(0, 0, stride, BASE_HEIGHT * zoomLevel, BACKGROUND_COLOR, 255);
+                canvas.fillRect(0, 0, stride, 32 * zoomLevel, GRAY_AREA_COLOR, 255);
+                drawStringFillWidth(canvas, 0, 0, stride, 32 * zoomLevel, layout.topFill, false, zoomLevel, text,
+                        random);
+                canvas.fillRect(0, 64 * zoomLevel, stride, 54 * zoomLevel, GRAY_AREA_COLOR, 255);
+                drawStringFillWidth(canvas, 0, 64 * zoomLevel, stride, 54 * zoomLevel, layout.bottomFill, true,
+                        zoomLevel, text, random);
+                textures[built] = canvas.pixels();
+            } finally {
+                canvas.dispose();
+            }
+            built++;
+            complete = built == TEXTURE_COUNT;
+        }
+    }
+
+    private static class RenderJob implements CaptchaRenderJob {
+
+        private static final int PHASE_LAYOUT = 0;
+        private static final int PHASE_GLYPHS = 1;
+        private static final int PHASE_BANK = 2;
+        private static final int PHASE_CONTEXT = 3;
+        private static final int PHASE_DATA = 4;
+        private static final int PHASE_TOP_BAND = 5;
+        private static final int PHASE_BOTTOM_BAND = 6;
+        private static final int PHASE_LINES = 7;
+        private static final int PHASE_DISTORTION = 8;
+        private static final int PHASE_STAGES = 9;
+        private static final int PHASE_SCALE = 10;
+        private static final int PHASE_ENCODE = 11;
+        private static final int PHASE_COUNT = 12;
+        private static final AtomicLongArray PHASE_COSTS = new AtomicLongArray(CONTEXT_SLOTS * PHASE_COUNT);
+
+        private final RenderBackend backend;
+        private final ScaleMode scaleMode;
+        private final int zoomLevel;
+        private final CaptchaEncoder encoder;
+        private final long seed;
+        private final long dataSeed;
+        private final int costSlot;
+        private ZoomLayout layout;
+        private BackgroundBank background;
+        private RenderContext renderContext;
+        private int phase = PHASE_LAYOUT;
+        private byte[] pixels;
+        private EncodeJob encodeJob;
+        private CaptchaResult result;
+        private RuntimeException failure;
+        private boolean closed;
+        private boolean released;
+
+        RenderJob(RenderBackend backend, ScaleMode scaleMode, int zoomLevel, CaptchaEncoder encoder, long seed,
+                long dataSeed) {
+            this.backend = backend;
+            this.scaleMode = scaleMode;
+            this.zoomLevel = zoomLevel;
+            this.encoder = encoder;
+            this.seed = seed;
+            this.dataSeed = dataSeed;
+            this.costSlot = contextSlot(backend, scaleMode, zoomLevel) * PHASE_COUNT;
+        }
+
+        @Override
+        public boolean step(long budgetNanos) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed && result == null) {
+                throw new IllegalStateException("Render job has been closed");
+            }
+            long deadline = System.nanoTime() + budgetNanos;
+            while (result == null) {
+                advance();
+                if (!hasBudget(deadline)) {
+                    break;
+                }
+            }
+            return result != null;
+        }
+
+        @Override
+        public boolean isDone() {
+            return result != null;
+        }
+
+        @Override
+        public CaptchaResult getResult() {
+            if (failure != null) {
+                throw failure;
+            }
+            if (result == null) {
+                throw new IllegalStateException("Render job has not finished");
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            releaseResources();
+        }
+
+        private void advance() {
+            int started = phase;
+            long start = System.nanoTime();
+            try {
+                runPhase();
+            } catch (Exception e) {
+                failure = new RuntimeException("Failed to generate CAPTCHA", e);
+                releaseResources();
+                throw failure;
+            }
+            long cost = System.nanoTime() - start;
+            long estimate = PHASE_COSTS.get(costSlot + started);
+            PHASE_COSTS.set(costSlot + started, estimate == 0 ? cost : estimate + (cost - estimate) / 4);
+        }
+
+        private boolean hasBudget(long deadline) {
+            return result == null && deadline - System.nanoTime() > PHASE_COSTS.get(costSlot + phase);
+        }
+
+        private void releaseResources() {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (encodeJob != null) {
+                encodeJob.close();
+                encodeJob = null;
+            }
+            pixels = null;
+            if (renderContext != null) {
+                renderContext.release();
             }
         }
-        return new CaptchaContext(keys, values, decryptionResult.toString(), displayString);
+
+        private void runPhase() {
+            switch (phase) {
+                case PHASE_LAYOUT:
+                    layout = ZoomLayout.of(RenderContext.renderZoom(scaleMode, zoomLevel), backend);
+                    break;
+                case PHASE_GLYPHS:
+                    if (!layout.prepareGlyphRow()) {
+                        return;
+                    }
+                    break;
+                case PHASE_BANK:
+                    if (background == null) {
+                        background = BackgroundBank.pending(backend, layout);
+                    }
+                    if (!background.buildNext()) {
+                        return;
+                    }
+                    break;
+                case PHASE_CONTEXT:
+                    renderContext = new RenderContext(backend, scaleMode, zoomLevel, false);
+                    break;
+                default:
+                    render();
+                    return;
+            }
+            phase++;
+        }
+
+        private void render() {
+            CaptchaCanvas canvas = renderContext.canvas;
+            CaptchaContext context = renderContext.data;
+            BlockRandomSource random = renderContext.random;
+            int zoomLevel = renderContext.zoomLevel;
+            int width = BASE_WIDTH * zoomLevel;
+            int height = BASE_HEIGHT * zoomLevel;
+            switch (phase) {
+                case PHASE_DATA:
+                    generateCaptchaData(context, dataSeed);
+                    random.reseed(seed);
+                    random.split(renderContext.topRandom);
+                    random.split(renderContext.bottomRandom);
+                    break;
+                case PHASE_TOP_BAND:
+                    drawTopBand(canvas, width, layout, context, background, renderContext.topRandom);
+                    break;
+                case PHASE_BOTTOM_BAND:
+                    drawBottomBand(canvas, width, height, layout, context, background,
+                            renderContext.bottomRandom);
+                    break;
+                case PHASE_LINES:
+                    drawRandomLines(canvas, 0, 64 * zoomLevel, width, 54 * zoomLevel, false, zoomLevel, random);
+                    break;
+                case PHASE_DISTORTION:
+                    addDistortionEffects(canvas, width, height, layout, random);
+                    break;
+                case PHASE_STAGES:
+                    pixels = canvas.pixels();
+                    for (CaptchaStage stage : STAGES) {
+                        stage.apply(pixels, width, height, zoomLevel, random);
+                    }
+                    break;
+                case PHASE_SCALE:
+                    pixels = scaleImage(renderContext, pixels);
+                    if (encoder instanceof IncrementalEncoder) {
+                        int size = BASE_WIDTH * renderContext.outputZoom;
+                        encodeJob = ((IncrementalEncoder) encoder).begin(pixels, size, size);
+                    }
+                    break;
+                case PHASE_ENCODE:
+                default:
+                    byte[] imageBytes;
+                    if (encodeJob == null) {
+                        int size = BASE_WIDTH * renderContext.outputZoom;
+                        imageBytes = encoder.encode(pixels, size, size);
+                    } else if (encodeJob.step()) {
+                        imageBytes = encodeJob.result();
+                    } else {
+                        return;
+                    }
+                    CaptchaSpec spec = new CaptchaSpec(renderContext.outputZoom, renderContext.backend,
+                            renderContext.scaleMode, encoder, seed, dataSeed);
+                    result = new CaptchaResult(imageBytes, context.copyValues(), context.answer, spec);
+                    releaseResources();
+                    break;
+            }
+            phase++;
+        }
     }
 
-    private static byte[] compressImage(BufferedImage image) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageOutputStream ios = null;
-        ImageWriter writer = null;
+    private static class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int BATCH_CHUNK = 8;
+
+        private final transient CaptchaResult[] results;
+        private final int start;
+        private final int end;
+        private final RenderBackend backend;
+        private final ScaleMode scaleMode;
+        private final int zoomLevel;
+        private final transient CaptchaEncoder encoder;
+
+        BatchTask(CaptchaResult[] results, int start, int end, RenderBackend backend, ScaleMode scaleMode,
+                int zoomLevel, CaptchaEncoder encoder) {
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.backend = backend;
+            this.scaleMode = scaleMode;
+            this.zoomLevel = zoomLevel;
+            this.encoder = encoder;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > BATCH_CHUNK) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new BatchTask(results, start, middle, backend, scaleMode, zoomLevel, encoder),
+                        new BatchTask(results, middle, end, backend, scaleMode, zoomLevel, encoder));
+                return;
+            }
+            RenderContext renderContext = null;
+            try {
+                renderContext = acquireRenderContext(backend, scaleMode, zoomLevel);
+                for (int i = start; i < end; i++) {
+                    results[i] = renderCaptcha(renderContext, encoder, RandomSource.strongSeed(),
+                            RandomSource.strongSeed());
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to generate CAPTCHA", e);
+            } finally {
+                if (renderContext != null) {
+                    renderContext.release();
+                }
+            }
+        }
+    }
+
+    private static CaptchaResult renderCaptcha(RenderContext renderContext, CaptchaEncoder encoder, long seed,
+            long dataSeed) {
+        BlockRandomSource random = renderContext.random;
+        CaptchaContext context = renderContext.data;
+        generateCaptchaData(context, dataSeed);
+        random.reseed(seed);
+        byte[] imageBytes = encodeImage(renderContext, encoder, drawImage(renderContext, context, random));
+        int[] valuesCopy = context.copyValues();
+        CaptchaSpec spec = new CaptchaSpec(renderContext.outputZoom, renderContext.backend, renderContext.scaleMode,
+                encoder, seed, dataSeed);
+        return new CaptchaResult(imageBytes, valuesCopy, context.answer, spec);
+    }
+
+    static byte[] renderImage(CaptchaSpec spec) {
+        RenderContext renderContext = null;
         try {
-            ios = ImageIO.createImageOutputStream(baos);
-            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
-            writer = writers.next();
-            ImageWriteParam param = writer.getDefaultWriteParam();
-            if (param.canWriteCompressed()) {
-                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-                param.setCompressionQuality(0.1f);
-            }
-            writer.setOutput(ios);
-            writer.write(null, new IIOImage(image, null, null), param);
-            return baos.toByteArray();
+            renderContext = acquireRenderContext(spec.backend, spec.scaleMode, spec.zoomLevel);
+            BlockRandomSource random = renderContext.random;
+            CaptchaContext context = renderContext.data;
+            generateCaptchaData(context, spec.dataSeed);
+            random.reseed(spec.seed);
+            byte[] pixels = drawImage(renderContext, context, random);
+            if (spec.retried) {
+                reshuffleDisplay(context, spec.retryDataSeed);
+                random.reseed(spec.retrySeed);
+                pixels = redrawTopStrip(renderContext, context, random);
+            }
+            return encodeImage(renderContext, spec.encoder, pixels);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate CAPTCHA", e);
         } finally {
-            if (writer != null) {
-                writer.dispose();
+            if (renderContext != null) {
+                renderContext.release();
+            }
+        }
+    }
+
+    static int generateAnswer(long dataSeed) {
+        CaptchaContext context = DATA_CONTEXTS.get();
+        generateCaptchaData(context, dataSeed);
+        return context.answer;
+    }
+
+    private static byte[] drawImage(RenderContext renderContext, CaptchaContext context, BlockRandomSource random) {
+        CaptchaCanvas canvas = renderContext.canvas;
+        int zoomLevel = renderContext.zoomLevel;
+        int WIDTH = BASE_WIDTH * zoomLevel;
+        int HEIGHT = BASE_HEIGHT * zoomLevel;
+        ZoomLayout layout = renderContext.layout;
+        renderBands(renderContext, context, random);
+        drawRandomLines(canvas, 0, 64 * zoomLevel, WIDTH, 54 * zoomLevel, false, zoomLevel, random);
+        addDistortionEffects(canvas, WIDTH, HEIGHT, layout, random);
+        byte[] pixels = canvas.pixels();
+        for (CaptchaStage stage : STAGES) {
+            stage.apply(pixels, WIDTH, HEIGHT, zoomLevel, random);
+        }
+        return pixels;
+    }
+
+    private static byte[] redrawTopStrip(RenderContext renderContext, CaptchaContext context,
+            BlockRandomSource random) {
+        CaptchaCanvas canvas = renderContext.canvas;
+        int zoomLevel = renderContext.zoomLevel;
+        int WIDTH = BASE_WIDTH * zoomLevel;
+        int HEIGHT = BASE_HEIGHT * zoomLevel;
+        int split = BAND_SPLIT * zoomLevel;
+        ZoomLayout layout = renderContext.layout;
+        CaptchaCanvas topBand = canvas.band(0, split);
+        byte[] pixels;
+        try {
+            drawTopBand(topBand, WIDTH, layout, context, renderContext.background(), random);
+            addDistortionEffects(topBand, WIDTH, HEIGHT, layout, random);
+            pixels = topBand.pixels();
+        } finally {
+            topBand.dispose();
+        }
+        for (CaptchaStage stage : STAGES) {
+            stage.apply(pixels, WIDTH, split, zoomLevel, random);
+        }
+        return pixels;
+    }
+
+    private static byte[] encodeImage(RenderContext renderContext, CaptchaEncoder encoder, byte[] pixels) {
+        int outputZoom = renderContext.outputZoom;
+        return encoder.encode(scaleImage(renderContext, pixels), BASE_WIDTH * outputZoom, BASE_HEIGHT * outputZoom);
+    }
+
+    private static byte[] scaleImage(RenderContext renderContext, byte[] pixels) {
+        int zoomLevel = renderContext.zoomLevel;
+        if (renderContext.outputZoom == zoomLevel) {
+            return pixels;
+        }
+        renderContext.scaled = IndexedRaster.upscale(pixels, BASE_WIDTH * zoomLevel, BASE_HEIGHT * zoomLevel,
+                renderContext.outputZoom / zoomLevel, renderContext.scaled);
+        return renderContext.scaled;
+    }
+
+    public static int[] getPalette() {
+        return CaptchaPalette.rgbValues();
+    }
+
+    private static void renderBands(RenderContext renderContext, CaptchaContext context, BlockRandomSource random) {
+        BlockRandomSource topRandom = renderContext.topRandom;
+        BlockRandomSource bottomRandom = renderContext.bottomRandom;
+        random.split(topRandom);
+        random.split(bottomRandom);
+        CaptchaCanvas canvas = renderContext.canvas;
+        ZoomLayout layout = renderContext.layout;
+        BackgroundBank background = renderContext.background();
+        int zoomLevel = layout.zoomLevel;
+        int width = BASE_WIDTH * zoomLevel;
+        int height = BASE_HEIGHT * zoomLevel;
+        if (zoomLevel < PARALLEL_MIN_ZOOM || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            drawTopBand(canvas, width, layout, context, background, topRandom);
+            drawBottomBand(canvas, width, height, layout, context, background, bottomRandom);
+            return;
+        }
+        int split = BAND_SPLIT * zoomLevel;
+        CaptchaCanvas topBand = canvas.band(0, split);
+        CaptchaCanvas bottomBand = canvas.band(split, height - split);
+        try {
+            ForkJoinTask<?> topTask = ForkJoinTask.adapt(
+                    () -> drawTopBand(topBand, width, layout, context, background, topRandom)).fork();
+            try {
+                drawBottomBand(bottomBand, width, height, layout, context, background, bottomRandom);
+            } finally {
+                topTask.quietlyJoin();
             }
-            if (ios != null) {
-                ios.close();
+            topTask.join();
+        } finally {
+            topBand.dispose();
+            bottomBand.dispose();
+        }
+    }
+
+    private static void drawTopBand(CaptchaCanvas canvas, int width, ZoomLayout layout, CaptchaContext context,
+            BackgroundBank background, RandomSource rand) {
+        int zoomLevel = layout.zoomLevel;
+        background.copyWindow(canvas, 0, BAND_SPLIT * zoomLevel, rand);
+        drawTopAreaString(canvas, 0, 0, width, 32 * zoomLevel, layout, context, rand);
+        drawRandomLines(canvas, 0, 0, width, 32 * zoomLevel, true, zoomLevel, rand);
+    }
+
+    private static void drawBottomBand(CaptchaCanvas canvas, int width, int height, ZoomLayout layout,
+            CaptchaContext context, BackgroundBank background, RandomSource rand) {
+        int zoomLevel = layout.zoomLevel;
+        int split = BAND_SPLIT * zoomLevel;
+        background.copyWindow(canvas, split, height - split, rand);
+        drawKeyValuePairs(canvas, 0, 64 * zoomLevel, width, 54 * zoomLevel, layout, context, rand);
+    }
+
+    private static CaptchaCanvas createCanvas(RenderBackend backend, int width, int height) {
+        switch (backend) {
+            case SOFTWARE:
+                return new IndexedRaster(width, height);
+            case JAVA2D_RGB:
+                return new Java2DCanvas(width, height, true);
+            case JAVA2D:
+            default:
+                return new Java2DCanvas(width, height, false);
+        }
+    }
+
+    private static long dataSeedOf(long seed) {
+        return BlockRandomSource.mix(seed ^ DATA_SEED_SALT);
+    }
+
+    private static void generateCaptchaData(CaptchaContext context, long dataSeed) {
+        context.random.reseed(dataSeed);
+        RandomSource rand = context.random;
+        int pairCount = MIN_PAIRS + rand.nextInt(MAX_PAIRS - MIN_PAIRS + 1);
+        char[] keys = context.keys;
+        int[] values = context.values;
+        generateRandomKeys(keys, pairCount, rand);
+        generateRandomValues(values, pairCount, rand);
+        context.pairCount = pairCount;
+        shuffleDisplay(context, rand);
+    }
+
+    private static void reshuffleDisplay(CaptchaContext context, long dataSeed) {
+        context.random.reseed(dataSeed);
+        shuffleDisplay(context, context.random);
+    }
+
+    private static void shuffleDisplay(CaptchaContext context, RandomSource rand) {
+        char[] keys = context.keys;
+        int[] values = context.values;
+        int pairCount = context.pairCount;
+        char[] display = context.display;
+        for (int i = 0; i < DISPLAY_LENGTH; i++) {
+            display[i] = keys[i % pairCount];
+        }
+        for (int i = DISPLAY_LENGTH - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            char temp = display[i];
+            display[i] = display[j];
+            display[j] = temp;
+        }
+        int answer = DISPLAY_LENGTH << CaptchaResult.ANSWER_LENGTH_SHIFT;
+        for (int i = 0; i < DISPLAY_LENGTH; i++) {
+            int keyIndex = 0;
+            while (keys[keyIndex] != display[i]) {
+                keyIndex++;
             }
+            answer |= values[keyIndex] << (4 * i);
         }
+        context.answer = answer;
     }
 
-    private static void drawKeyValuePairs(Graphics2D g2d, int x, int y, int width, int height,
-            int zoomLevel, CaptchaContext context) {
-        Random rand = ThreadLocalRandom.current();
-        String[] keys = context.keys;
+    private static void drawKeyValuePairs(CaptchaCanvas canvas, int x, int y, int width, int height,
+            ZoomLayout layout, CaptchaContext context, RandomSource rand) {
+        char[] keys = context.keys;
         int[] values = context.values;
-        int pairCount = keys.length;
-        Color[] colors = generateRandomColors(pairCount);
-        Font keyValueFont = new Font("Arial", Font.PLAIN, 13 * zoomLevel);
-        g2d.setFont(keyValueFont);
-        FontMetrics fm = g2d.getFontMetrics();
+        char[] text = context.pairText;
+        int pairCount = context.pairCount;
+        int[] colors = generateRandomColors(pairCount, rand);
+        int zoomLevel = layout.zoomLevel;
+        GlyphAtlas.Face face = layout.keyValueFace;
         int col1Count = (pairCount + 1) / 2;
         int col2Count = pairCount - col1Count;
         int col1X = x + 10 * zoomLevel;
@@ -173,245 +948,156 @@ public class CaptchaGenerator {
         int pairSpacing = 18 * zoomLevel;
         int startY1 = y + 15 * zoomLevel;
         for (int i = 0; i < col1Count; i++) {
-            String keyValueText = keys[i] + "->" + values[i];
+            pairText(text, keys[i], values[i]);
             int posY = startY1 + i * pairSpacing + rand.nextInt(3 * zoomLevel);
-            posY = Math.max(y + fm.getAscent(), Math.min(posY, y + height - 5 * zoomLevel));
-            drawKeyValuePairWithCorruption(g2d, keyValueText, col1X, posY, colors[i], fm, zoomLevel);
+            posY = Math.max(y + face.ascent, Math.min(posY, y + height - 5 * zoomLevel));
+            drawKeyValuePairWithCorruption(canvas, text, col1X, posY, colors[i], face, zoomLevel, rand);
         }
         int startY2 = y + 15 * zoomLevel;
         for (int i = 0; i < col2Count; i++) {
             int index = col1Count + i;
-            String keyValueText = keys[index] + "->" + values[index];
+            pairText(text, keys[index], values[index]);
             int posY = startY2 + i * pairSpacing + rand.nextInt(3 * zoomLevel);
-            posY = Math.max(y + fm.getAscent(), Math.min(posY, y + height - 5 * zoomLevel));
-            drawKeyValuePairWithCorruption(g2d, keyValueText, col2X, posY, colors[index], fm, zoomLevel);
+            posY = Math.max(y + face.ascent, Math.min(posY, y + height - 5 * zoomLevel));
+            drawKeyValuePairWithCorruption(canvas, text, col2X, posY, colors[index], face, zoomLevel, rand);
         }
     }
 
-    private static void drawTopAreaString(Graphics2D g2d, int x, int y, int width, int height,
-            int zoomLevel, CaptchaContext context) {
-        String displayString = context.displayString;
-        if (displayString == null) {
-            return;
-        }
-
-        Font topFont = new Font("Arial", Font.BOLD, 20 * zoomLevel);
-        g2d.setFont(topFont);
-        FontMetrics fm = g2d.getFontMetrics();
-        int totalWidth = 0;
-        for (char c : displayString.toCharArray()) {
-            totalWidth += fm.charWidth(c);
-        }
+    private static void drawTopAreaString(CaptchaCanvas canvas, int x, int y, int width, int height,
+            ZoomLayout layout, CaptchaContext context, RandomSource rand) {
+        char[] display = context.display;
+        int zoomLevel = layout.zoomLevel;
+        GlyphAtlas.Face face = layout.displayFace;
+        int totalWidth = face.charsWidth(display, DISPLAY_LENGTH);
         int totalSpacing = width - totalWidth - 10 * zoomLevel;
-        int spacingPerChar = Math.max(2 * zoomLevel, totalSpacing / (displayString.length() - 1));
+        int spacingPerChar = Math.max(2 * zoomLevel, totalSpacing / (DISPLAY_LENGTH - 1));
         int currentX = x + 5 * zoomLevel;
-        int baseY = y + fm.getAscent() + 5 * zoomLevel;
-        Random rand = ThreadLocalRandom.current();
-        for (int i = 0; i < displayString.length(); i++) {
-            char ch = displayString.charAt(i);
-            Color charColor = BRIGHT_COLORS[rand.nextInt(BRIGHT_COLORS.length)];
-            g2d.setColor(charColor);
+        int baseY = y + face.ascent + 5 * zoomLevel;
+        for (int i = 0; i < DISPLAY_LENGTH; i++) {
+            char ch = display[i];
+            int charColor = BRIGHT_COLORS[rand.nextInt(BRIGHT_COLORS.length)];
             int charY = baseY + rand.nextInt(6 * zoomLevel) - 3 * zoomLevel;
-            Graphics2D g2dRotated = (Graphics2D) g2d.create();
-            try {
-                double angle = rand.nextBoolean()
-                        ? 0.1 + rand.nextDouble() * 0.3
-                        : -0.1 - rand.nextDouble() * 0.3;
+            double angle = rand.nextBoolean()
+                    ? 0.1 + rand.nextDouble() * 0.3
+                    : -0.1 - rand.nextDouble() * 0.3;
+            canvas.drawGlyph(face.glyph(ch, angle), currentX, charY, charColor, 255);
+            canvas.drawGlyph(face.glyph(ch), currentX + zoomLevel, charY + zoomLevel,
+                    darker(charColor), alpha(0.3f));
+
+            currentX += face.charWidth(ch) + spacingPerChar;
+        }
+    }
 
-                g2dRotated.rotate(angle, currentX + fm.charWidth(ch) / 2, charY);
-                g2dRotated.drawString(String.valueOf(ch), currentX, charY);
-            } finally {
-                g2dRotated.dispose();
-            }
-            Composite originalComposite = g2d.getComposite();
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-            g2d.setColor(charColor.darker());
-            g2d.drawString(String.valueOf(ch), currentX + zoomLevel, charY + zoomLevel);
-            g2d.setComposite(originalComposite);
-
-            currentX += fm.charWidth(ch) + spacingPerChar;
-        }
-    }
-
-    private static void drawStringFillWidth(Graphics2D g2d, int x, int y, int targetWidth, int maxHeight,
-            boolean isBold, boolean isBottomArea, int zoomLevel) {
-        int baseFontSize = isBottomArea ? 12 : 9;
-        int fontSize = baseFontSize * zoomLevel;
-        Font font;
-        FontMetrics fm;
-        int actualCharHeight;
-        int numberOfLines;
-
-        do {
-            int fontStyle = isBold ? Font.BOLD : Font.PLAIN;
-            font = new Font("Arial", fontStyle, fontSize);
-            fm = g2d.getFontMetrics(font);
-            actualCharHeight = fm.getAscent();
-            numberOfLines = maxHeight / actualCharHeight;
-            fontSize++;
-        } while (numberOfLines < 3 && fontSize < 25 * zoomLevel);
-        fontSize--;
-        int fontStyle = isBold ? Font.BOLD : Font.PLAIN;
-        font = new Font("Arial", fontStyle, fontSize);
-        g2d.setFont(font);
-        g2d.setColor(TEXT_COLOR);
-        fm = g2d.getFontMetrics();
-        actualCharHeight = fm.getAscent();
-        numberOfLines = (maxHeight / actualCharHeight) + (isBottomArea ? 4 : 2);
-        int avgCharWidth = fm.charWidth('A');
-        int charsPerLine = (targetWidth / avgCharWidth) + 3;
-        Random rand = ThreadLocalRandom.current();
+    private static void drawStringFillWidth(CaptchaCanvas canvas, int x, int y, int targetWidth, int maxHeight,
+            ZoomLayout.FillLayout fill, boolean isBottomArea, int zoomLevel, char[] text, RandomSource rand) {
+        GlyphAtlas.Face face = fill.face;
+        int actualCharHeight = fill.charHeight;
+        int numberOfLines = fill.numberOfLines;
+        int avgCharWidth = fill.avgCharWidth;
+        int charsPerLine = fill.charsPerLine;
         for (int line = 0; line < numberOfLines; line++) {
             int maxOffset = isBottomArea ? actualCharHeight : actualCharHeight / 2;
             int randomOffset = rand.nextInt(Math.max(1, maxOffset)) - maxOffset / 2;
-            int currentY = y + fm.getAscent() + (line * (actualCharHeight - Math.abs(randomOffset)));
-            if (currentY - fm.getAscent() > y + maxHeight) {
+            int currentY = y + face.ascent + (line * (actualCharHeight - Math.abs(randomOffset)));
+            if (currentY - face.ascent > y + maxHeight) {
                 continue;
             }
-            String lineText = randomText(charsPerLine);
+            randomText(text, charsPerLine, rand);
             int drawX = x;
             int textIndex = 0;
             while (drawX < x + targetWidth) {
-                if (textIndex >= lineText.length()) {
-                    lineText = randomText(charsPerLine);
+                if (textIndex >= charsPerLine) {
+                    randomText(text, charsPerLine, rand);
                     textIndex = 0;
                 }
 
-                char ch = lineText.charAt(textIndex);
-                int charWidth = fm.charWidth(ch);
+                char ch = text[textIndex];
+                int charWidth = face.charWidth(ch);
 
                 if (isBottomArea && rand.nextInt(5) == 0) {
-                    Graphics2D g2dRotated = (Graphics2D) g2d.create();
-                    try {
-                        double angle = (rand.nextDouble() - 0.5) * 0.3;
-                        g2dRotated.rotate(angle, drawX + charWidth / 2, currentY);
-                        g2dRotated.drawString(String.valueOf(ch), drawX, currentY);
-                    } finally {
-                        g2dRotated.dispose();
-                    }
+                    double angle = (rand.nextDouble() - 0.5) * 0.3;
+                    canvas.drawGlyph(face.glyph(ch, angle), drawX, currentY, TEXT_COLOR, 255);
                 } else {
                     if (drawX + charWidth > x + targetWidth) {
-                        g2d.setClip(x, y, targetWidth, maxHeight);
-                        g2d.drawString(String.valueOf(ch), drawX, currentY);
-                        g2d.setClip(null);
+                        canvas.setClip(x, y, targetWidth, maxHeight);
+                        canvas.drawGlyph(face.glyph(ch), drawX, currentY, TEXT_COLOR, 255);
+                        canvas.resetClip();
                         break;
                     } else {
-                        g2d.drawString(String.valueOf(ch), drawX, currentY);
+                        canvas.drawGlyph(face.glyph(ch), drawX, currentY, TEXT_COLOR, 255);
                     }
                 }
                 drawX += charWidth;
                 textIndex++;
             }
         }
-        Composite originalComposite = g2d.getComposite();
         int extraLayers = isBottomArea ? numberOfLines : numberOfLines / 2;
         for (int i = 0; i < extraLayers; i++) {
-            float alpha = isBottomArea ? 0.1f + rand.nextFloat() * 0.4f : 0.3f;
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            int alpha = alpha(isBottomArea ? 0.1f + rand.nextFloat() * 0.4f : 0.3f);
             int randomY = y + rand.nextInt(maxHeight);
             int randomX = x + rand.nextInt(Math.max(1, targetWidth / 3));
-            String randomChars = randomText(targetWidth / avgCharWidth);
+            int randomLength = randomText(text, targetWidth / avgCharWidth, rand);
             int drawX = randomX;
-            for (int j = 0; j < randomChars.length() && drawX < x + targetWidth; j++) {
-                char ch = randomChars.charAt(j);
+            for (int j = 0; j < randomLength && drawX < x + targetWidth; j++) {
+                char ch = text[j];
                 if (isBottomArea && rand.nextInt(4) == 0) {
-                    Graphics2D g2dScaled = (Graphics2D) g2d.create();
-                    try {
-                        float scale = 0.7f + rand.nextFloat() * 0.6f;
-                        g2dScaled.scale(scale, scale);
-                        g2dScaled.drawString(String.valueOf(ch), (int) (drawX / scale), (int) (randomY / scale));
-                    } finally {
-                        g2dScaled.dispose();
-                    }
+                    float scale = 0.7f + rand.nextFloat() * 0.6f;
+                    GlyphAtlas.Face scaledFace = fill.scaledFace(scale);
+                    canvas.drawGlyph(scaledFace.glyph(ch), drawX, randomY, TEXT_COLOR, alpha);
                 } else {
-                    g2d.drawString(String.valueOf(ch), drawX, randomY);
+                    canvas.drawGlyph(face.glyph(ch), drawX, randomY, TEXT_COLOR, alpha);
                 }
 
-                drawX += fm.charWidth(ch);
+                drawX += face.charWidth(ch);
             }
         }
-        g2d.setComposite(originalComposite);
     }
 
-    private static void drawKeyValuePairWithCorruption(Graphics2D g2d, String text, int x, int y,
-            Color color, FontMetrics fm, int zoomLevel) {
-        Random rand = ThreadLocalRandom.current();
-        g2d.setColor(color);
-        g2d.drawString(text, x, y);
-        for (int i = 0; i < text.length(); i++) {
-            char ch = text.charAt(i);
-            int charX = x;
-
-            for (int j = 0; j < i; j++) {
-                charX += fm.charWidth(text.charAt(j));
-            }
+    private static void drawKeyValuePairWithCorruption(CaptchaCanvas canvas, char[] text, int x, int y,
+            int color, GlyphAtlas.Face face, int zoomLevel, RandomSource rand) {
+        canvas.drawString(face, text, text.length, x, y, color, 255);
+        int darkerColor = darker(color);
+        int charX = x;
+        for (int i = 0; i < text.length; i++) {
+            char ch = text[i];
             if (rand.nextInt(3) == 0) {
                 int offsetX = (rand.nextInt(3) - 1) * zoomLevel;
                 int offsetY = (rand.nextInt(3) - 1) * zoomLevel;
-
-                Composite originalComposite = g2d.getComposite();
-                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f));
-                g2d.setColor(color.darker());
-                g2d.drawString(String.valueOf(ch), charX + offsetX, y + offsetY);
-                g2d.setComposite(originalComposite);
-                g2d.setColor(color);
+                canvas.drawGlyph(face.glyph(ch), charX + offsetX, y + offsetY, darkerColor, alpha(0.4f));
             }
+            charX += face.charWidth(ch);
         }
+        int textWidth = charX - x;
         for (int i = 0; i < 5 * zoomLevel; i++) {
-            int noiseX = x + rand.nextInt(fm.stringWidth(text) + 10 * zoomLevel) - 5 * zoomLevel;
-            int noiseY = y + rand.nextInt(fm.getHeight()) - fm.getAscent();
+            int noiseX = x + rand.nextInt(textWidth + 10 * zoomLevel) - 5 * zoomLevel;
+            int noiseY = y + rand.nextInt(face.height) - face.ascent;
 
-            Color noiseColor = new Color(
-                    Math.max(0, Math.min(255, color.getRed() + rand.nextInt(60) - 30)),
-                    Math.max(0, Math.min(255, color.getGreen() + rand.nextInt(60) - 30)),
-                    Math.max(0, Math.min(255, color.getBlue() + rand.nextInt(60) - 30)),
-                    100
-            );
+            int noiseColor = (jitter(color >> 16, rand) << 16)
+                    | (jitter(color >> 8, rand) << 8)
+                    | jitter(color, rand);
 
-            g2d.setColor(noiseColor);
-            g2d.fillRect(noiseX, noiseY, zoomLevel, zoomLevel);
+            canvas.fillRect(noiseX, noiseY, zoomLevel, zoomLevel, noiseColor, 100);
         }
-        Composite originalComposite = g2d.getComposite();
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.15f));
-        g2d.setColor(Color.WHITE);
-        g2d.drawString(text, x + zoomLevel, y);
-        g2d.setComposite(originalComposite);
+        canvas.drawString(face, text, text.length, x + zoomLevel, y, 0xFFFFFF, alpha(0.15f));
     }
 
-    private static void drawRandomLines(Graphics2D g2d, int x, int y, int width, int height,
-            boolean isTopArea, int zoomLevel) {
-        Random rand = ThreadLocalRandom.current();
+    private static void drawRandomLines(CaptchaCanvas canvas, int x, int y, int width, int height,
+            boolean isTopArea, int zoomLevel, RandomSource rand) {
         int lineCount = 5 + rand.nextInt(6);
 
         for (int i = 0; i < lineCount; i++) {
             if (isTopArea) {
-                g2d.setStroke(new BasicStroke(1.2f * zoomLevel));
-
-                Color grayLineColor = new Color(
-                        GRAY_AREA_COLOR.getRed() + 40,
-                        GRAY_AREA_COLOR.getGreen() + 40,
-                        GRAY_AREA_COLOR.getBlue() + 40,
-                        180 + rand.nextInt(75)
-                );
-                g2d.setColor(grayLineColor);
+                int alpha = 180 + rand.nextInt(75);
 
                 int lineY = y + rand.nextInt(height);
                 int startX = x + rand.nextInt(width / 4);
                 int endX = x + width - rand.nextInt(width / 4);
 
-                g2d.drawLine(startX, lineY, endX, lineY);
+                canvas.drawLine(startX, lineY, endX, lineY, 1.2f * zoomLevel, GRAY_LINE_COLOR, alpha);
 
             } else {
-                g2d.setStroke(new BasicStroke(1.0f * zoomLevel));
-
-                Color lineColor = new Color(
-                        rand.nextInt(256),
-                        rand.nextInt(256),
-                        rand.nextInt(256),
-                        150 + rand.nextInt(106)
-                );
-
-                g2d.setColor(lineColor);
+                int lineColor = (rand.nextInt(256) << 16) | (rand.nextInt(256) << 8) | rand.nextInt(256);
+                int alpha = 150 + rand.nextInt(106);
 
                 int x1 = rand.nextInt(width);
                 int y1 = y + rand.nextInt(height);
@@ -420,115 +1106,81 @@ public class CaptchaGenerator {
                 int x2 = x1 + (int) (width * Math.cos(angle));
                 int y2 = y1 + (int) (width * Math.sin(angle));
 
-                g2d.drawLine(x1, y1, x2, y2);
+                canvas.drawLine(x1, y1, x2, y2, 1.0f * zoomLevel, lineColor, alpha);
             }
         }
-
-        g2d.setStroke(new BasicStroke(1.0f * zoomLevel));
     }
 
-    private static void addDistortionEffects(Graphics2D g2d, int WIDTH, int HEIGHT, int zoomLevel) {
-        Random rand = ThreadLocalRandom.current();
+    private static void addDistortionEffects(CaptchaCanvas canvas, int WIDTH, int HEIGHT, ZoomLayout layout,
+            RandomSource rand) {
+        int zoomLevel = layout.zoomLevel;
 
-        g2d.setStroke(new BasicStroke(0.8f * zoomLevel));
+        float strokeWidth = 0.8f * zoomLevel;
         for (int i = 0; i < 3; i++) {
-            Color wavyColor = new Color(rand.nextInt(256), rand.nextInt(256), rand.nextInt(256), 80);
-            g2d.setColor(wavyColor);
+            int wavyColor = (rand.nextInt(256) << 16) | (rand.nextInt(256) << 8) | rand.nextInt(256);
 
             int startY = rand.nextInt(HEIGHT);
             int amplitude = (5 + rand.nextInt(10)) * zoomLevel;
             int frequency = (20 + rand.nextInt(20)) * zoomLevel;
 
-            for (int x = 0; x < WIDTH - 1; x++) {
-                int y1 = startY + (int) (amplitude * Math.sin(2 * Math.PI * x / frequency));
-                int y2 = startY + (int) (amplitude * Math.sin(2 * Math.PI * (x + 1) / frequency));
-                g2d.drawLine(x, y1, x + 1, y2);
-            }
-        }
-
-        for (int i = 0; i < 30 * zoomLevel; i++) {
-            Color dotColor = new Color(rand.nextInt(256), rand.nextInt(256), rand.nextInt(256), 60 + rand.nextInt(100));
-            g2d.setColor(dotColor);
-
-            int x = rand.nextInt(WIDTH);
-            int y = rand.nextInt(HEIGHT);
-            int size = (1 + rand.nextInt(3)) * zoomLevel;
-
-            g2d.fillOval(x, y, size, size);
+            canvas.drawWave(startY, amplitude, frequency, strokeWidth, wavyColor, 80);
         }
 
-        Font shadowFont = new Font("Arial", Font.BOLD, 8 * zoomLevel);
-        g2d.setFont(shadowFont);
+        GlyphAtlas.Face shadowFace = layout.shadowFace;
 
         for (int i = 0; i < 15 * zoomLevel; i++) {
-            Composite shadowComposite = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.1f + rand.nextFloat() * 0.2f);
-            g2d.setComposite(shadowComposite);
-
-            Color shadowColor = new Color(rand.nextInt(150), rand.nextInt(150), rand.nextInt(150));
-            g2d.setColor(shadowColor);
+            int alpha = alpha(0.1f + rand.nextFloat() * 0.2f);
+            int shadowColor = (rand.nextInt(150) << 16) | (rand.nextInt(150) << 8) | rand.nextInt(150);
 
             char ch = SHADOW_CHARS.charAt(rand.nextInt(SHADOW_CHARS.length()));
             int x = rand.nextInt(WIDTH - 10 * zoomLevel);
             int y = 10 * zoomLevel + rand.nextInt(HEIGHT - 20 * zoomLevel);
 
-            g2d.drawString(String.valueOf(ch), x, y);
+            canvas.drawGlyph(shadowFace.glyph(ch), x, y, shadowColor, alpha);
         }
     }
 
-    private static void addImageCorruption(Graphics2D g2d, BufferedImage image, int WIDTH, int HEIGHT, int zoomLevel) {
-        Random rand = ThreadLocalRandom.current();
-        for (int i = 0; i < 25 * zoomLevel; i++) {
-            int x = rand.nextInt(WIDTH);
-            int y = rand.nextInt(HEIGHT);
-            int corruptionSize = (rand.nextInt(2) + 1) * zoomLevel;
-
-            Color originalColor = new Color(image.getRGB(x, y), true);
-            int r = Math.max(0, Math.min(255, originalColor.getRed() + rand.nextInt(60) - 30));
-            int g = Math.max(0, Math.min(255, originalColor.getGreen() + rand.nextInt(60) - 30));
-            int b = Math.max(0, Math.min(255, originalColor.getBlue() + rand.nextInt(60) - 30));
-
-            g2d.setColor(new Color(r, g, b));
-            g2d.fillRect(x, y, corruptionSize, corruptionSize);
-        }
-    }
-
-    private static String[] generateRandomKeys(int count) {
-        String[] keys = new String[count];
-        Set<String> usedKeys = new HashSet<>();
-        Random rand = ThreadLocalRandom.current();
-
+    private static void generateRandomKeys(char[] keys, int count, RandomSource rand) {
+        long usedLow = 0;
+        long usedHigh = 0;
         for (int i = 0; i < count; i++) {
-            String newKey;
+            int index;
+            long bit;
+            boolean used;
             do {
-                newKey = String.valueOf(ALL_CHARS.charAt(rand.nextInt(ALL_CHARS.length())));
-            } while (usedKeys.contains(newKey));
-
-            keys[i] = newKey;
-            usedKeys.add(newKey);
+                index = rand.nextInt(ALL_CHARS.length());
+                bit = 1L << (index & 63);
+                used = ((index < 64 ? usedLow : usedHigh) & bit) != 0;
+            } while (used);
+            if (index < 64) {
+                usedLow |= bit;
+            } else {
+                usedHigh |= bit;
+            }
+            keys[i] = ALL_CHARS.charAt(index);
         }
-        return keys;
     }
 
-    private static int[] generateRandomValues(int count) {
-        int[] values = new int[count];
-        Set<Integer> usedValues = new HashSet<>();
-        Random rand = ThreadLocalRandom.current();
-
+    private static void generateRandomValues(int[] values, int count, RandomSource rand) {
+        long digits = DIGIT_NIBBLES;
         for (int i = 0; i < count; i++) {
-            int newValue;
-            do {
-                newValue = rand.nextInt(10);
-            } while (usedValues.contains(newValue));
-
-            values[i] = newValue;
-            usedValues.add(newValue);
+            int j = i + rand.nextInt(10 - i);
+            long digitI = (digits >>> (4 * i)) & 0xF;
+            long digitJ = (digits >>> (4 * j)) & 0xF;
+            digits ^= ((digitI ^ digitJ) << (4 * i)) | ((digitI ^ digitJ) << (4 * j));
+            values[i] = (int) digitJ;
         }
-        return values;
     }
 
-    private static Color[] generateRandomColors(int count) {
-        Color[] colors = new Color[count];
-        Random rand = ThreadLocalRandom.current();
+    private static void pairText(char[] text, char key, int value) {
+        text[0] = key;
+        text[1] = '-';
+        text[2] = '>';
+        text[3] = (char) ('0' + value);
+    }
+
+    private static int[] generateRandomColors(int count, RandomSource rand) {
+        int[] colors = new int[count];
 
         for (int i = 0; i < count; i++) {
             colors[i] = BRIGHT_COLORS[rand.nextInt(BRIGHT_COLORS.length)];
@@ -536,12 +1188,25 @@ public class CaptchaGenerator {
         return colors;
     }
 
-    private static String randomText(int length) {
-        StringBuilder sb = new StringBuilder();
-        Random rand = ThreadLocalRandom.current();
+    private static int darker(int rgb) {
+        int r = (int) (((rgb >> 16) & 0xFF) * 0.7);
+        int g = (int) (((rgb >> 8) & 0xFF) * 0.7);
+        int b = (int) ((rgb & 0xFF) * 0.7);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static int jitter(int channel, RandomSource rand) {
+        return Math.max(0, Math.min(255, (channel & 0xFF) + rand.nextInt(60) - 30));
+    }
+
+    private static int alpha(float alpha) {
+        return (int) (alpha * 255 + 0.5f);
+    }
+
+    private static int randomText(char[] text, int length, RandomSource rand) {
         for (int i = 0; i < length; i++) {
-            sb.append(CHARS.charAt(rand.nextInt(CHARS.length())));
+            text[i] = CHARS.charAt(rand.nextInt(CHARS.length()));
         }
-        return sb.toString();
+        return length;
     }
 }
@@ -1,6 +1,18 @@
 package captcha;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.girlkun.models.player.Player;
 import com.girlkun.services.Service;
 
@@ -8,8 +20,20 @@ public class CaptchaManager {
 
     private static volatile CaptchaManager instance;
     private static final Object lock = new Object();
+    private static final int RENDER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int RENDER_QUEUE_CAPACITY = 1024;
+    private static final int MAX_CONCURRENT_RENDERS = Runtime.getRuntime().availableProcessors();
 
     private final ConcurrentHashMap<Integer, CaptchaSession> activeCaptchas;
+    private final CaptchaPool captchaPool;
+    private final CopyOnWriteArrayList<CaptchaEncoder> preferredEncoders;
+    private final ConcurrentHashMap<Integer, Integer> clientFormats;
+    private final ThreadPoolExecutor renderExecutor;
+    private final ExecutorService virtualExecutor;
+    private final Semaphore renderPermits;
+    private volatile ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+    private volatile boolean lazyEncoding;
+    private volatile boolean partialRetry;
 
     private static class CaptchaSession {
 
@@ -28,6 +52,23 @@ public class CaptchaManager {
 
     private CaptchaManager() {
         this.activeCaptchas = new ConcurrentHashMap<>();
+        this.captchaPool = new CaptchaPool();
+        this.preferredEncoders = new CopyOnWriteArrayList<>();
+        this.preferredEncoders.add(CaptchaEncoder.RAW);
+        this.preferredEncoders.add(CaptchaEncoder.GIF);
+        this.preferredEncoders.add(CaptchaEncoder.PNG);
+        this.clientFormats = new ConcurrentHashMap<>();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.renderExecutor = new ThreadPoolExecutor(RENDER_THREADS, RENDER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(RENDER_QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "captcha-render-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.virtualExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("captcha-virtual-", 0).factory());
+        this.renderPermits = new Semaphore(MAX_CONCURRENT_RENDERS, true);
+        this.captchaPool.start();
     }
 
     public static CaptchaManager getInstance() {
@@ -43,29 +84,102 @@ public class CaptchaManager {
 
     public void generateCaptchaForPlayer(Player player) {
         try {
-            int sessionId = generateCaptcha(player, player.getSession().getZoomLevel());
+            int sessionId = generateCaptcha(player, player.getSession().getZoomLevel(), false);
             CaptchaResult captcha = getCaptcha(sessionId);
             if (captcha != null) {
                 Service.gI().sendCaptcha(player);
+                captcha.releaseImage();
             }
 
         } catch (Exception e) {
         }
     }
 
-    public int generateCaptcha(Player player, int zoomLevel) {
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        if (executionMode == null) {
+            throw new IllegalArgumentException("Execution mode cannot be null");
+        }
+        this.executionMode = executionMode;
+    }
+
+    public boolean isLazyEncoding() {
+        return lazyEncoding;
+    }
+
+    public void setLazyEncoding(boolean lazyEncoding) {
+        this.lazyEncoding = lazyEncoding;
+    }
+
+    public boolean isPartialRetry() {
+        return partialRetry;
+    }
+
+    public void setPartialRetry(boolean partialRetry) {
+        this.partialRetry = partialRetry;
+        if (!partialRetry) {
+            for (CaptchaSession session : activeCaptchas.values()) {
+                session.captchaResult.releaseRetainedRows();
+            }
+        }
+    }
+
+    public CompletableFuture<CaptchaResult> generateCaptchaAsync(Player player) {
         if (player == null) {
             throw new IllegalArgumentException("Player cannot be null");
         }
+        int sessionId = player.getSession().getUserId();
+        int zoomLevel = player.getSession().getZoomLevel();
+        boolean virtual = executionMode == ExecutionMode.VIRTUAL_THREADS;
         try {
-            int sessionId = player.getSession().getUserId();
-            CaptchaResult captchaResult = CaptchaGenerator.createCaptchaImage(zoomLevel);
-            CaptchaSession session = new CaptchaSession(captchaResult);
-            activeCaptchas.put(sessionId, session);
-            return sessionId;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate CAPTCHA", e);
+            return CompletableFuture.supplyAsync(() -> {
+                if (virtual) {
+                    generateCaptchaThrottled(player, zoomLevel);
+                } else {
+                    generateCaptcha(player, zoomLevel, false);
+                }
+                CaptchaResult captcha = getCaptcha(sessionId);
+                if (captcha != null) {
+                    Service.gI().sendCaptcha(player);
+                    captcha.releaseImage();
+                }
+                return captcha;
+            }, virtual ? virtualExecutor : renderExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public int generateCaptcha(Player player, int zoomLevel) {
+        return generateCaptcha(player, zoomLevel, lazyEncoding);
+    }
+
+    public void registerEncoder(CaptchaEncoder encoder) {
+        if (encoder == null) {
+            throw new IllegalArgumentException("Captcha encoder cannot be null");
         }
+        preferredEncoders.remove(encoder);
+        preferredEncoders.add(0, encoder);
+    }
+
+    public void setClientFormats(int sessionId, int capabilityMask) {
+        clientFormats.put(sessionId, capabilityMask);
+    }
+
+    public void clearClientFormats(int sessionId) {
+        clientFormats.remove(sessionId);
+    }
+
+    public CaptchaEncoder selectEncoder(int capabilityMask) {
+        for (CaptchaEncoder encoder : preferredEncoders) {
+            if ((encoder.capabilityMask() & capabilityMask) != 0) {
+                return encoder;
+            }
+        }
+        return CaptchaEncoder.PNG;
     }
 
     public boolean containsCaptcha(int sessionId) {
@@ -97,7 +211,11 @@ public class CaptchaManager {
         } else if (captchaResult.captchaEnterd.length() == 6) {
             if (captchaResult.captchaFailCount >= 10) {
                 captchaResult.captchaFailCount = 0;
-                generateCaptchaForPlayer(player);
+                if (partialRetry && retainsRows(captchaResult)) {
+                    regenerateCaptchaForPlayer(player, sessionId, captchaResult);
+                } else {
+                    generateCaptchaForPlayer(player);
+                }
             } else {
                 captchaResult.captchaFailCount++;
             }
@@ -111,6 +229,84 @@ public class CaptchaManager {
         }
     }
 
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+        virtualExecutor.shutdownNow();
+        captchaPool.shutdown();
+    }
+
+    private int generateCaptcha(Player player, int zoomLevel, boolean lazy) {
+        if (player == null) {
+            throw new IllegalArgumentException("Player cannot be null");
+        }
+        try {
+            int sessionId = player.getSession().getUserId();
+            CaptchaEncoder encoder = selectEncoder(clientFormats.getOrDefault(sessionId, 0));
+            CaptchaResult captchaResult = lazy
+                    ? CaptchaGenerator.createLazyCaptcha(zoomLevel, encoder)
+                    : captchaPool.take(zoomLevel, encoder);
+            CaptchaSession session = new CaptchaSession(captchaResult);
+            activeCaptchas.put(sessionId, session);
+            return sessionId;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate CAPTCHA", e);
+        }
+    }
+
+    private void generateCaptchaThrottled(Player player, int zoomLevel) {
+        try {
+            renderPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to generate CAPTCHA", e);
+        }
+        Future<Integer> render = null;
+        try {
+            render = renderExecutor.submit(() -> generateCaptcha(player, zoomLevel, false));
+            render.get();
+        } catch (InterruptedException e) {
+            render.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to generate CAPTCHA", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to generate CAPTCHA", e.getCause());
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    private void regenerateCaptchaForPlayer(Player player, int sessionId, CaptchaResult previous) {
+        try {
+            CompletableFuture.runAsync(() -> {
+                CaptchaResult captcha = CaptchaGenerator.regenerateCaptcha(previous);
+                if (!partialRetry) {
+                    captcha.releaseRetainedRows();
+                }
+                CaptchaSession session = activeCaptchas.get(sessionId);
+                if (session == null || session.captchaResult != previous
+                        || !activeCaptchas.replace(sessionId, session, new CaptchaSession(captcha))) {
+                    captcha.dispose();
+                    return;
+                }
+                previous.dispose();
+                Service.gI().sendCaptcha(player);
+                captcha.releaseImage();
+            }, renderExecutor);
+        } catch (RejectedExecutionException e) {
+            generateCaptchaForPlayer(player);
+        }
+    }
+
+    private static boolean retainsRows(CaptchaResult captchaResult) {
+        if (!captchaResult.isSeeded()) {
+            return false;
+        }
+        CaptchaSpec spec = captchaResult.spec();
+        int formatId = spec.encoder.formatId();
+        return spec.backend == RenderBackend.JAVA2D_RGB && spec.scaleMode == ScaleMode.NATIVE
+                && (formatId == CaptchaEncoder.FORMAT_RAW || formatId == CaptchaEncoder.FORMAT_GIF);
+    }
+
     private void removeSessionAndCleanup(int sessionId, CaptchaSession session) {
         activeCaptchas.remove(sessionId);
         session.dispose();
@@ -0,0 +1,124 @@
+package captcha;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+
+final class CaptchaPalette {
+
+    static final int SIZE = 256;
+    static final int ALPHA_LEVELS = 16;
+
+    private static final int[] RGB = new int[SIZE];
+    private static final byte[] INVERSE = new byte[32 * 32 * 32];
+
+    static {
+        int i = 0;
+        for (int r = 0; r < 256; r += 51) {
+            for (int g = 0; g < 256; g += 51) {
+                for (int b = 0; b < 256; b += 51) {
+                    RGB[i++] = (r << 16) | (g << 8) | b;
+                }
+            }
+        }
+        int grayIncrement = 256 / (SIZE - i);
+        int gray = grayIncrement * 3;
+        for (; i < SIZE; i++) {
+            RGB[i] = (gray << 16) | (gray << 8) | gray;
+            gray += grayIncrement;
+        }
+        for (int cell = 0; cell < INVERSE.length; cell++) {
+            int r = expand(cell >> 10);
+            int g = expand((cell >> 5) & 31);
+            int b = expand(cell & 31);
+            int best = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int index = 0; index < SIZE; index++) {
+                int dr = r - ((RGB[index] >> 16) & 0xFF);
+                int dg = g - ((RGB[index] >> 8) & 0xFF);
+                int db = b - (RGB[index] & 0xFF);
+                int distance = dr * dr + dg * dg + db * db;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = index;
+                }
+            }
+            INVERSE[cell] = (byte) best;
+        }
+    }
+
+    private static final class ColorModelHolder {
+
+        static final IndexColorModel COLOR_MODEL = new IndexColorModel(8, SIZE, RGB, 0, false, -1,
+                DataBuffer.TYPE_BYTE);
+    }
+
+    private static final class BlendTableHolder {
+
+        static final byte[] BLEND_TABLE = buildBlendTable();
+    }
+
+    private CaptchaPalette() {
+    }
+
+    static IndexColorModel colorModel() {
+        return ColorModelHolder.COLOR_MODEL;
+    }
+
+    static int[] rgbValues() {
+        return RGB.clone();
+    }
+
+    static byte[] rgbTriples() {
+        byte[] triples = new byte[SIZE * 3];
+        for (int i = 0; i < SIZE; i++) {
+            triples[i * 3] = (byte) (RGB[i] >> 16);
+            triples[i * 3 + 1] = (byte) (RGB[i] >> 8);
+            triples[i * 3 + 2] = (byte) RGB[i];
+        }
+        return triples;
+    }
+
+    static int indexOf(int rgb) {
+        return INVERSE[((rgb >> 9) & 0x7C00) | ((rgb >> 6) & 0x3E0) | ((rgb >> 3) & 0x1F)] & 0xFF;
+    }
+
+    static int rgbOf(int index) {
+        return RGB[index];
+    }
+
+    static byte[] blendTable() {
+        return BlendTableHolder.BLEND_TABLE;
+    }
+
+    static int blendRow(int rgb, int alpha) {
+        int level = (alpha * (ALPHA_LEVELS - 1) + 127) / 255;
+        return (level << 16) | (indexOf(rgb) << 8);
+    }
+
+    static int blend(int dstIndex, int rgb, int alpha) {
+        int dst = RGB[dstIndex];
+        int inverse = 255 - alpha;
+        int r = (((rgb >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inverse) / 255;
+        int g = (((rgb >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inverse) / 255;
+        int b = ((rgb & 0xFF) * alpha + (dst & 0xFF) * inverse) / 255;
+        return indexOf((r << 16) | (g << 8) | b);
+    }
+
+    private static byte[] buildBlendTable() {
+        byte[] table = new byte[ALPHA_LEVELS * SIZE * SIZE];
+        for (int level = 0; level < ALPHA_LEVELS; level++) {
+            int alpha = level * 255 / (ALPHA_LEVELS - 1);
+            for (int src = 0; src < SIZE; src++) {
+                int row = (level << 16) | (src << 8);
+                for (int dst = 0; dst < SIZE; dst++) {
+                    table[row | dst] = (byte) blend(dst, RGB[src], alpha);
+                }
+            }
+        }
+        return table;
+    }
+
+    private static int expand(int channel) {
+        return (channel << 3) | (channel >> 2);
+    }
+}
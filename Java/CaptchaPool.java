@@ -0,0 +1,197 @@
+package captcha;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CaptchaPool {
+
+    private static final int MIN_ZOOM = 1;
+    private static final int MAX_ZOOM = 4;
+    private static final int MIN_POOL_SIZE = 2;
+    private static final int MAX_POOL_SIZE = 256;
+    private static final long REFILL_INTERVAL_MS = 250;
+    private static final long MAX_ENTRY_AGE_MS = 60_000;
+    private static final int DEMAND_LOOKAHEAD_TICKS = 8;
+    private static final double DEMAND_DECAY = 0.2;
+
+    private final ConcurrentHashMap<CaptchaEncoder, ZoomPool[]> poolsByEncoder = new ConcurrentHashMap<>();
+    private final List<ZoomPool> pools = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private ScheduledExecutorService refiller;
+
+    private static class PooledCaptcha {
+
+        final CaptchaResult captchaResult;
+        final long createdAt;
+
+        PooledCaptcha(CaptchaResult captchaResult, long createdAt) {
+            this.captchaResult = captchaResult;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static class ZoomPool {
+
+        final int zoomLevel;
+        final CaptchaEncoder encoder;
+        final int minSize;
+        final ConcurrentLinkedQueue<PooledCaptcha> entries = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        double demandPerTick;
+
+        ZoomPool(int zoomLevel, CaptchaEncoder encoder, int minSize) {
+            this.zoomLevel = zoomLevel;
+            this.encoder = encoder;
+            this.minSize = minSize;
+        }
+
+        CaptchaResult poll(long now) {
+            PooledCaptcha entry;
+            while ((entry = entries.poll()) != null) {
+                size.decrementAndGet();
+                if (now - entry.createdAt <= MAX_ENTRY_AGE_MS) {
+                    return entry.captchaResult;
+                }
+                entry.captchaResult.dispose();
+            }
+            return null;
+        }
+
+        void evictExpired(long now) {
+            PooledCaptcha entry;
+            while ((entry = entries.peek()) != null && now - entry.createdAt > MAX_ENTRY_AGE_MS) {
+                if (entries.remove(entry)) {
+                    size.decrementAndGet();
+                    entry.captchaResult.dispose();
+                }
+            }
+        }
+
+        int targetSize() {
+            int lastTick = requests.getAndSet(0);
+            demandPerTick += (lastTick - demandPerTick) * DEMAND_DECAY;
+            double expected = Math.max(demandPerTick, lastTick) * DEMAND_LOOKAHEAD_TICKS;
+            return Math.max(minSize, Math.min(MAX_POOL_SIZE, (int) Math.ceil(expected)));
+        }
+
+        boolean refillOne(int target) {
+            if (size.get() >= target) {
+                return false;
+            }
+            CaptchaResult captchaResult = CaptchaGenerator.createCaptchaImage(zoomLevel, encoder);
+            entries.offer(new PooledCaptcha(captchaResult, System.currentTimeMillis()));
+            size.incrementAndGet();
+            return true;
+        }
+
+        void clear() {
+            PooledCaptcha entry;
+            while ((entry = entries.poll()) != null) {
+                size.decrementAndGet();
+                entry.captchaResult.dispose();
+            }
+        }
+    }
+
+    public CaptchaPool() {
+        poolsFor(CaptchaEncoder.PNG, MIN_POOL_SIZE);
+    }
+
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        refiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "captcha-pool-refiller");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        refiller.scheduleWithFixedDelay(this::refillAll, 0, REFILL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        if (!started.compareAndSet(true, false)) {
+            return;
+        }
+        refiller.shutdownNow();
+        for (ZoomPool pool : pools) {
+            pool.clear();
+        }
+    }
+
+    public CaptchaResult take(int zoomLevel) {
+        return take(zoomLevel, CaptchaEncoder.PNG);
+    }
+
+    public CaptchaResult take(int zoomLevel, CaptchaEncoder encoder) {
+        if (encoder == null) {
+            throw new IllegalArgumentException("Captcha encoder cannot be null");
+        }
+        if (zoomLevel < MIN_ZOOM || zoomLevel > MAX_ZOOM) {
+            return CaptchaGenerator.createCaptchaImage(zoomLevel, encoder);
+        }
+        ZoomPool pool = poolsFor(encoder, 0)[zoomLevel - MIN_ZOOM];
+        pool.requests.incrementAndGet();
+        CaptchaResult captchaResult = pool.poll(System.currentTimeMillis());
+        if (captchaResult != null) {
+            return captchaResult;
+        }
+        return CaptchaGenerator.createCaptchaImage(zoomLevel, encoder);
+    }
+
+    public int size(int zoomLevel) {
+        return size(zoomLevel, CaptchaEncoder.PNG);
+    }
+
+    public int size(int zoomLevel, CaptchaEncoder encoder) {
+        ZoomPool[] zoomPools = poolsByEncoder.get(encoder);
+        if (zoomPools == null || zoomLevel < MIN_ZOOM || zoomLevel > MAX_ZOOM) {
+            return 0;
+        }
+        return zoomPools[zoomLevel - MIN_ZOOM].size.get();
+    }
+
+    private ZoomPool[] poolsFor(CaptchaEncoder encoder, int minSize) {
+        ZoomPool[] zoomPools = poolsByEncoder.get(encoder);
+        if (zoomPools != null) {
+            return zoomPools;
+        }
+        return poolsByEncoder.computeIfAbsent(encoder, key -> {
+            ZoomPool[] created = new ZoomPool[MAX_ZOOM - MIN_ZOOM + 1];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new ZoomPool(MIN_ZOOM + i, key, minSize);
+                pools.add(created[i]);
+            }
+            return created;
+        });
+    }
+
+    private void refillAll() {
+        try {
+            long now = System.currentTimeMillis();
+            ZoomPool[] snapshot = pools.toArray(new ZoomPool[0]);
+            int[] targets = new int[snapshot.length];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i].evictExpired(now);
+                targets[i] = snapshot[i].targetSize();
+            }
+            boolean refilled = true;
+            while (refilled && !Thread.currentThread().isInterrupted()) {
+                refilled = false;
+                for (int i = 0; i < snapshot.length; i++) {
+                    refilled |= snapshot[i].refillOne(targets[i]);
+                }
+            }
+        } catch (Exception e) {
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package captcha;
+
+public interface CaptchaRenderJob extends AutoCloseable {
+
+    boolean step(long budgetNanos);
+
+    boolean isDone();
+
+    CaptchaResult getResult();
+
+    @Override
+    void close();
+}
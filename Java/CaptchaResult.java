@@ -4,9 +4,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CaptchaResult implements AutoCloseable {
 
+    static final int ANSWER_LENGTH_SHIFT = 28;
+
     private byte[] imageBytes;
     private int[] globalValues;
     private final String decryptionKey;
+    private final int packedAnswer;
+    private final int formatId;
+    private final CaptchaSpec spec;
+    private byte[] retainedRows;
     public final StringBuilder captchaEnterd;
     private final Object inputLock = new Object();
     public int captchaFailCount;
@@ -14,19 +20,90 @@ public class CaptchaResult implements AutoCloseable {
     private final Object resourceLock = new Object();
 
     public CaptchaResult(byte[] imageBytes, int[] globalValues, String decryptionKey) {
+        this(imageBytes, globalValues, decryptionKey, CaptchaEncoder.FORMAT_PNG);
+    }
+
+    public CaptchaResult(byte[] imageBytes, int[] globalValues, String decryptionKey, int formatId) {
+        this(imageBytes, globalValues, decryptionKey, 0, formatId, null);
+    }
+
+    CaptchaResult(byte[] imageBytes, int[] globalValues, int packedAnswer, CaptchaSpec spec) {
+        this(imageBytes, globalValues, null, packedAnswer, spec.encoder.formatId(), spec);
+    }
+
+    CaptchaResult(byte[] imageBytes, int[] globalValues, int packedAnswer, CaptchaSpec spec, byte[] retainedRows) {
+        this(imageBytes, globalValues, null, packedAnswer, spec.encoder.formatId(), spec);
+        this.retainedRows = retainedRows;
+    }
+
+    private CaptchaResult(byte[] imageBytes, int[] globalValues, String decryptionKey, int packedAnswer,
+            int formatId, CaptchaSpec spec) {
         this.imageBytes = imageBytes;
         this.globalValues = globalValues;
         this.decryptionKey = decryptionKey;
+        this.packedAnswer = packedAnswer;
+        this.formatId = formatId;
+        this.spec = spec;
         this.captchaEnterd = new StringBuilder();
     }
 
     public byte[] getImageBytes() {
         checkNotDisposed();
         synchronized (resourceLock) {
+            checkNotDisposed();
+            if (imageBytes == null && spec != null) {
+                imageBytes = spec.render();
+            }
             return imageBytes;
         }
     }
 
+    public void releaseImage() {
+        synchronized (resourceLock) {
+            if (spec != null) {
+                imageBytes = null;
+            }
+        }
+    }
+
+    public int getFormatId() {
+        return formatId;
+    }
+
+    public boolean isSeeded() {
+        return spec != null;
+    }
+
+    public long getSeed() {
+        if (spec == null) {
+            throw new IllegalStateException("CaptchaResult was not generated from a seed");
+        }
+        return spec.seed;
+    }
+
+    public long getDataSeed() {
+        if (spec == null) {
+            throw new IllegalStateException("CaptchaResult was not generated from a seed");
+        }
+        return spec.dataSeed;
+    }
+
+    CaptchaSpec spec() {
+        return spec;
+    }
+
+    byte[] retainedRows() {
+        synchronized (resourceLock) {
+            return retainedRows;
+        }
+    }
+
+    void releaseRetainedRows() {
+        synchronized (resourceLock) {
+            retainedRows = null;
+        }
+    }
+
     public int[] getGlobalValues() {
         checkNotDisposed();
         synchronized (resourceLock) {
@@ -49,8 +126,13 @@ public class CaptchaResult implements AutoCloseable {
 
     public boolean verify() {
         synchronized (inputLock) {
-            return captchaEnterd != null
-                    && captchaEnterd.toString().trim().equalsIgnoreCase(decryptionKey);
+            if (captchaEnterd == null) {
+                return false;
+            }
+            if (decryptionKey != null) {
+                return captchaEnterd.toString().trim().equalsIgnoreCase(decryptionKey);
+            }
+            return matchesPackedAnswer();
         }
     }
 
@@ -59,6 +141,7 @@ public class CaptchaResult implements AutoCloseable {
             synchronized (resourceLock) {
                 imageBytes = null;
                 globalValues = null;
+                retainedRows = null;
             }
             synchronized (inputLock) {
                 captchaEnterd.setLength(0);
@@ -93,6 +176,26 @@ public class CaptchaResult implements AutoCloseable {
         return disposed.get();
     }
 
+    private boolean matchesPackedAnswer() {
+        int start = 0;
+        int end = captchaEnterd.length();
+        while (start < end && captchaEnterd.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && captchaEnterd.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start != packedAnswer >>> ANSWER_LENGTH_SHIFT) {
+            return false;
+        }
+        for (int i = 0; i < end - start; i++) {
+            if (captchaEnterd.charAt(start + i) != '0' + ((packedAnswer >>> (4 * i)) & 0xF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void checkNotDisposed() {
         if (isDisposed()) {
             throw new IllegalStateException("CaptchaResult has been disposed");
@@ -0,0 +1,41 @@
+package captcha;
+
+final class CaptchaSpec {
+
+    final int zoomLevel;
+    final RenderBackend backend;
+    final ScaleMode scaleMode;
+    final CaptchaEncoder encoder;
+    final long seed;
+    final long dataSeed;
+    final boolean retried;
+    final long retrySeed;
+    final long retryDataSeed;
+
+    CaptchaSpec(int zoomLevel, RenderBackend backend, ScaleMode scaleMode, CaptchaEncoder encoder, long seed,
+            long dataSeed) {
+        this(zoomLevel, backend, scaleMode, encoder, seed, dataSeed, false, 0L, 0L);
+    }
+
+    private CaptchaSpec(int zoomLevel, RenderBackend backend, ScaleMode scaleMode, CaptchaEncoder encoder, long seed,
+            long dataSeed, boolean retried, long retrySeed, long retryDataSeed) {
+        this.zoomLevel = zoomLevel;
+        this.backend = backend;
+        this.scaleMode = scaleMode;
+        this.encoder = encoder;
+        this.seed = seed;
+        this.dataSeed = dataSeed;
+        this.retried = retried;
+        this.retrySeed = retrySeed;
+        this.retryDataSeed = retryDataSeed;
+    }
+
+    CaptchaSpec retry(long retrySeed, long retryDataSeed) {
+        return new CaptchaSpec(zoomLevel, backend, scaleMode, encoder, seed, dataSeed, true, retrySeed,
+                retryDataSeed);
+    }
+
+    byte[] render() {
+        return CaptchaGenerator.renderImage(this);
+    }
+}
@@ -0,0 +1,11 @@
+package captcha;
+
+import java.util.random.RandomGenerator;
+
+public interface CaptchaStage {
+
+    CaptchaStage DOT_NOISE = DotNoiseStage.INSTANCE;
+    CaptchaStage CORRUPTION = CorruptionStage.INSTANCE;
+
+    void apply(byte[] pixels, int width, int height, int zoomLevel, RandomGenerator random);
+}
@@ -0,0 +1,38 @@
+package captcha;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+final class CorruptionStage implements CaptchaStage {
+
+    static final CorruptionStage INSTANCE = new CorruptionStage();
+
+    private CorruptionStage() {
+    }
+
+    @Override
+    public void apply(byte[] pixels, int width, int height, int zoomLevel, RandomGenerator random) {
+        int count = 25 * zoomLevel * height / width;
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int corruptionSize = (random.nextInt(2) + 1) * zoomLevel;
+
+            int originalColor = CaptchaPalette.rgbOf(pixels[y * width + x] & 0xFF);
+            int r = jitter(originalColor >> 16, random);
+            int g = jitter(originalColor >> 8, random);
+            int b = jitter(originalColor, random);
+
+            byte index = (byte) CaptchaPalette.indexOf((r << 16) | (g << 8) | b);
+            int endX = Math.min(width, x + corruptionSize);
+            int endY = Math.min(height, y + corruptionSize);
+            for (int py = y; py < endY; py++) {
+                Arrays.fill(pixels, py * width + x, py * width + endX, index);
+            }
+        }
+    }
+
+    private static int jitter(int channel, RandomGenerator random) {
+        return Math.max(0, Math.min(255, (channel & 0xFF) + random.nextInt(60) - 30));
+    }
+}
@@ -0,0 +1,59 @@
+package captcha;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+abstract class DeflateJob extends EncodeJob {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final Deflater deflater;
+    private final byte[] input;
+    private final int inputLength;
+    private final int dataStart;
+    private int inputOffset;
+    private byte[] output;
+    private int position;
+
+    DeflateJob(int level, byte[] input, int inputLength, byte[] prefix, int capacity) {
+        this.deflater = new Deflater(level, false);
+        this.input = input;
+        this.inputLength = inputLength;
+        this.output = Arrays.copyOf(prefix, Math.max(prefix.length + 64, capacity));
+        this.dataStart = prefix.length;
+        this.position = prefix.length;
+    }
+
+    @Override
+    final boolean step() {
+        int length = Math.min(CHUNK_SIZE, inputLength - inputOffset);
+        deflater.setInput(input, inputOffset, length);
+        inputOffset += length;
+        boolean finishing = inputOffset == inputLength;
+        if (finishing) {
+            deflater.finish();
+        }
+        while (finishing ? !deflater.finished() : !deflater.needsInput()) {
+            if (position == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            position += deflater.deflate(output, position, output.length - position);
+        }
+        if (finishing) {
+            deflater.end();
+        }
+        return finishing;
+    }
+
+    @Override
+    final byte[] result() {
+        return complete(output, dataStart, position);
+    }
+
+    @Override
+    final void close() {
+        deflater.end();
+    }
+
+    abstract byte[] complete(byte[] output, int dataStart, int dataEnd);
+}
@@ -0,0 +1,45 @@
+package captcha;
+
+import java.util.random.RandomGenerator;
+
+final class DotNoiseStage implements CaptchaStage {
+
+    static final DotNoiseStage INSTANCE = new DotNoiseStage();
+
+    private DotNoiseStage() {
+    }
+
+    @Override
+    public void apply(byte[] pixels, int width, int height, int zoomLevel, RandomGenerator random) {
+        byte[] table = CaptchaPalette.blendTable();
+        int count = 30 * zoomLevel * height / width;
+        for (int i = 0; i < count; i++) {
+            int dotColor = (random.nextInt(256) << 16) | (random.nextInt(256) << 8) | random.nextInt(256);
+            int alpha = 60 + random.nextInt(100);
+
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int size = (1 + random.nextInt(3)) * zoomLevel;
+
+            int blendRow = CaptchaPalette.blendRow(dotColor, alpha);
+            double radius = size / 2.0;
+            double centerX = x + radius;
+            double centerY = y + radius;
+            int endY = Math.min(height, y + size);
+            for (int py = y; py < endY; py++) {
+                double dy = (py + 0.5 - centerY) / radius;
+                double span = 1 - dy * dy;
+                if (span <= 0) {
+                    continue;
+                }
+                double half = radius * Math.sqrt(span);
+                int startX = Math.max(0, (int) Math.ceil(centerX - half - 0.5));
+                int endX = Math.min(width, (int) Math.ceil(centerX + half - 0.5));
+                int row = py * width;
+                for (int offset = row + startX; offset < row + endX; offset++) {
+                    pixels[offset] = table[blendRow | (pixels[offset] & 0xFF)];
+                }
+            }
+        }
+    }
+}
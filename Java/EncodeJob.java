@@ -0,0 +1,11 @@
+package captcha;
+
+abstract class EncodeJob {
+
+    abstract boolean step();
+
+    abstract byte[] result();
+
+    void close() {
+    }
+}
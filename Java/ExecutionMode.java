@@ -0,0 +1,6 @@
+package captcha;
+
+public enum ExecutionMode {
+    PLATFORM_THREADS,
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,194 @@
+package captcha;
+
+import java.util.Arrays;
+
+final class GifEncoder implements CaptchaEncoder, IncrementalEncoder {
+
+    static final GifEncoder INSTANCE = new GifEncoder();
+
+    private static final int MIN_CODE_SIZE = 8;
+    private static final int CLEAR_CODE = 1 << MIN_CODE_SIZE;
+    private static final int END_CODE = CLEAR_CODE + 1;
+    private static final int MAX_CODE = 4096;
+    private static final int HASH_SIZE = 8192;
+    private static final int CHUNK_PIXELS = 16 * 1024;
+    private static final byte[] COLOR_TABLE = CaptchaPalette.rgbTriples();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+
+        final int[] hashKeys = new int[HASH_SIZE];
+        final short[] hashCodes = new short[HASH_SIZE];
+        byte[] codes = new byte[0];
+        byte[] output = new byte[0];
+        byte[] pixels;
+        int pixelCount;
+        int next;
+        int length;
+        int bits;
+        int bitCount;
+        int codeSize;
+        int nextCode;
+        int prefix;
+
+        void start(byte[] pixels, int pixelCount) {
+            int capacity = pixelCount * 3 / 2 + 16;
+            if (codes.length < capacity) {
+                codes = new byte[capacity];
+            }
+            Arrays.fill(hashKeys, -1);
+            this.pixels = pixels;
+            this.pixelCount = pixelCount;
+            next = 1;
+            length = 0;
+            bits = 0;
+            bitCount = 0;
+            codeSize = MIN_CODE_SIZE + 1;
+            nextCode = END_CODE + 1;
+            emit(CLEAR_CODE);
+            prefix = pixels[0] & 0xFF;
+        }
+
+        boolean compress(int maxPixels) {
+            byte[] pixels = this.pixels;
+            int[] hashKeys = this.hashKeys;
+            short[] hashCodes = this.hashCodes;
+            int end = (int) Math.min(pixelCount, (long) next + maxPixels);
+            int prefix = this.prefix;
+            for (int i = next; i < end; i++) {
+                int pixel = pixels[i] & 0xFF;
+                int key = (prefix << 8) | pixel;
+                int slot = (key * 0x9E3779B1 >>> 19) & (HASH_SIZE - 1);
+                while (hashKeys[slot] != -1 && hashKeys[slot] != key) {
+                    slot = (slot + 1) & (HASH_SIZE - 1);
+                }
+                if (hashKeys[slot] == key) {
+                    prefix = hashCodes[slot];
+                    continue;
+                }
+                emit(prefix);
+                if (nextCode == MAX_CODE) {
+                    emit(CLEAR_CODE);
+                    Arrays.fill(hashKeys, -1);
+                    nextCode = END_CODE + 1;
+                    codeSize = MIN_CODE_SIZE + 1;
+                } else {
+                    if (nextCode >= 1 << codeSize) {
+                        codeSize++;
+                    }
+                    hashKeys[slot] = key;
+                    hashCodes[slot] = (short) nextCode++;
+                }
+                prefix = pixel;
+            }
+            this.prefix = prefix;
+            next = end;
+            if (end < pixelCount) {
+                return false;
+            }
+            emit(prefix);
+            bits |= END_CODE << bitCount;
+            bitCount += codeSize;
+            while (bitCount > 0) {
+                codes[length++] = (byte) bits;
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+            this.pixels = null;
+            return true;
+        }
+
+        private void emit(int code) {
+            bits |= code << bitCount;
+            bitCount += codeSize;
+            while (bitCount >= 8) {
+                codes[length++] = (byte) bits;
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+    }
+
+    private GifEncoder() {
+    }
+
+    @Override
+    public int formatId() {
+        return FORMAT_GIF;
+    }
+
+    @Override
+    public byte[] encode(byte[] pixels, int width, int height) {
+        Scratch scratch = SCRATCH.get();
+        scratch.start(pixels, width * height);
+        scratch.compress(width * height);
+        int capacity = capacity(scratch.length);
+        if (scratch.output.length < capacity) {
+            scratch.output = new byte[capacity];
+        }
+        byte[] output = scratch.output;
+        return Arrays.copyOf(output, writeImage(output, width, height, scratch.codes, scratch.length));
+    }
+
+    @Override
+    public EncodeJob begin(byte[] pixels, int width, int height) {
+        Scratch scratch = new Scratch();
+        scratch.start(pixels, width * height);
+        return new EncodeJob() {
+
+            @Override
+            boolean step() {
+                return scratch.compress(CHUNK_PIXELS);
+            }
+
+            @Override
+            byte[] result() {
+                byte[] output = new byte[capacity(scratch.length)];
+                return Arrays.copyOf(output, writeImage(output, width, height, scratch.codes, scratch.length));
+            }
+        };
+    }
+
+    private static int capacity(int codesLength) {
+        return 13 + COLOR_TABLE.length + 10 + 1 + codesLength + codesLength / 255 + 3;
+    }
+
+    private static int writeImage(byte[] output, int width, int height, byte[] codes, int codesLength) {
+        int position = 0;
+        output[position++] = 'G';
+        output[position++] = 'I';
+        output[position++] = 'F';
+        output[position++] = '8';
+        output[position++] = '9';
+        output[position++] = 'a';
+        position = writeShort(output, position, width);
+        position = writeShort(output, position, height);
+        output[position++] = (byte) 0xF7;
+        output[position++] = 0;
+        output[position++] = 0;
+        System.arraycopy(COLOR_TABLE, 0, output, position, COLOR_TABLE.length);
+        position += COLOR_TABLE.length;
+        output[position++] = 0x2C;
+        position = writeShort(output, position, 0);
+        position = writeShort(output, position, 0);
+        position = writeShort(output, position, width);
+        position = writeShort(output, position, height);
+        output[position++] = 0;
+        output[position++] = MIN_CODE_SIZE;
+        for (int offset = 0; offset < codesLength; offset += 255) {
+            int blockLength = Math.min(255, codesLength - offset);
+            output[position++] = (byte) blockLength;
+            System.arraycopy(codes, offset, output, position, blockLength);
+            position += blockLength;
+        }
+        output[position++] = 0;
+        output[position++] = 0x3B;
+        return position;
+    }
+
+    private static int writeShort(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        return offset + 2;
+    }
+}
@@ -0,0 +1,307 @@
+package captcha;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class GlyphAtlas {
+
+    static final double MAX_ANGLE = 0.4;
+    static final double ANGLE_STEP = 0.025;
+    private static final int ANGLE_STEPS = 2 * (int) Math.round(MAX_ANGLE / ANGLE_STEP) + 1;
+    private static final int CACHED_CHARS = 128;
+    private static final char FIRST_BATCHED = ' ';
+    private static final char LAST_BATCHED = '~';
+    private static final int BATCH_COLUMNS = 16;
+
+    private static final ConcurrentHashMap<String, Face> FACES = new ConcurrentHashMap<>();
+
+    private GlyphAtlas() {
+    }
+
+    static Face face(String family, int style, int size, int zoomLevel) {
+        String key = family + ':' + style + ':' + size + ':' + zoomLevel;
+        Face face = FACES.get(key);
+        if (face == null) {
+            face = FACES.computeIfAbsent(key, k -> createFontFace(new Font(family, style, size)));
+        }
+        return face;
+    }
+
+    static int step(double angle) {
+        return (int) Math.round(Math.max(-MAX_ANGLE, Math.min(MAX_ANGLE, angle)) / ANGLE_STEP);
+    }
+
+    private static Face createFontFace(Font font) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = scratch.createGraphics();
+        try {
+            applyHints(g2d);
+            return new FontFace(font, g2d.getFontMetrics(font));
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    static final class Glyph {
+
+        final int offsetX;
+        final int offsetY;
+        final int width;
+        final int height;
+        final byte[] mask;
+
+        Glyph(int offsetX, int offsetY, int width, int height, byte[] mask) {
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.width = width;
+            this.height = height;
+            this.mask = mask;
+        }
+    }
+
+    abstract static class Face {
+
+        final int ascent;
+        final int height;
+        private final int[] advances = new int[CACHED_CHARS];
+        private final Glyph[][] glyphs = new Glyph[ANGLE_STEPS][];
+
+        Face(int ascent, int height) {
+            this.ascent = ascent;
+            this.height = height;
+        }
+
+        final void initAdvances() {
+            for (int ch = 0; ch < CACHED_CHARS; ch++) {
+                advances[ch] = advance((char) ch);
+            }
+        }
+
+        abstract int advance(char ch);
+
+        abstract Glyph rasterize(char ch, double angle);
+
+        void rasterizeAll(Glyph[] target, double angle) {
+        }
+
+        int charWidth(char ch) {
+            return ch < CACHED_CHARS ? advances[ch] : advance(ch);
+        }
+
+        int charsWidth(char[] text, int length) {
+            int width = 0;
+            for (int i = 0; i < length; i++) {
+                width += charWidth(text[i]);
+            }
+            return width;
+        }
+
+        Glyph glyph(char ch) {
+            return cached(ch, 0);
+        }
+
+        Glyph glyph(char ch, double angle) {
+            return cached(ch, step(angle));
+        }
+
+        void prepare(int step) {
+            Glyph[] row = row(step);
+            for (char ch = FIRST_BATCHED; ch <= LAST_BATCHED; ch++) {
+                if (row[ch] == null) {
+                    row[ch] = rasterize(ch, step * ANGLE_STEP);
+                }
+            }
+        }
+
+        private Glyph cached(char ch, int step) {
+            double angle = step * ANGLE_STEP;
+            if (ch >= CACHED_CHARS) {
+                return rasterize(ch, angle);
+            }
+            Glyph[] row = row(step);
+            Glyph glyph = row[ch];
+            if (glyph == null) {
+                glyph = rasterize(ch, angle);
+                row[ch] = glyph;
+            }
+            return glyph;
+        }
+
+        private Glyph[] row(int step) {
+            int slot = step + ANGLE_STEPS / 2;
+            Glyph[] row = glyphs[slot];
+            if (row == null) {
+                row = new Glyph[CACHED_CHARS];
+                rasterizeAll(row, step * ANGLE_STEP);
+                glyphs[slot] = row;
+            }
+            return row;
+        }
+    }
+
+    static final class FontFace extends Face {
+
+        final Font font;
+        final FontMetrics metrics;
+
+        FontFace(Font font, FontMetrics metrics) {
+            super(metrics.getAscent(), metrics.getHeight());
+            this.font = font;
+            this.metrics = metrics;
+            initAdvances();
+        }
+
+        @Override
+        int advance(char ch) {
+            return metrics.charWidth(ch);
+        }
+
+        @Override
+        Glyph rasterize(char ch, double angle) {
+            int advance = charWidth(ch);
+            int extent = 2 * Math.max(advance, height) + 4;
+            int originX = extent / 2 - advance / 2;
+            int originY = extent / 2;
+            BufferedImage canvas = new BufferedImage(extent, extent, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g2d = canvas.createGraphics();
+            try {
+                applyHints(g2d);
+                g2d.setFont(font);
+                g2d.setColor(Color.WHITE);
+                if (angle != 0) {
+                    g2d.rotate(angle, originX + advance / 2, originY);
+                }
+                g2d.drawString(String.valueOf(ch), originX, originY);
+            } finally {
+                g2d.dispose();
+            }
+            byte[] pixels = ((DataBufferByte) canvas.getRaster().getDataBuffer()).getData();
+            return trim(pixels, extent, extent, originX, originY);
+        }
+
+        @Override
+        void rasterizeAll(Glyph[] target, double angle) {
+            int count = LAST_BATCHED - FIRST_BATCHED + 1;
+            char[] chars = new char[count];
+            int maxAdvance = 0;
+            for (int i = 0; i < count; i++) {
+                chars[i] = (char) (FIRST_BATCHED + i);
+                maxAdvance = Math.max(maxAdvance, charWidth(chars[i]));
+            }
+            int cell = 2 * Math.max(maxAdvance, height) + 4;
+            int rows = (count + BATCH_COLUMNS - 1) / BATCH_COLUMNS;
+            int stride = cell * BATCH_COLUMNS;
+            GlyphVector vector = font.createGlyphVector(metrics.getFontRenderContext(), chars);
+            for (int i = 0; i < count; i++) {
+                int advance = charWidth(chars[i]);
+                vector.setGlyphPosition(i, new Point2D.Float(
+                        (i % BATCH_COLUMNS) * cell + cell / 2 - advance / 2, (i / BATCH_COLUMNS) * cell + cell / 2));
+                if (angle != 0) {
+                    vector.setGlyphTransform(i, AffineTransform.getRotateInstance(angle, advance / 2, 0));
+                }
+            }
+            BufferedImage canvas = new BufferedImage(stride, rows * cell, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g2d = canvas.createGraphics();
+            try {
+                applyHints(g2d);
+                g2d.setColor(Color.WHITE);
+                g2d.drawGlyphVector(vector, 0, 0);
+            } finally {
+                g2d.dispose();
+            }
+            byte[] pixels = ((DataBufferByte) canvas.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < count; i++) {
+                int advance = charWidth(chars[i]);
+                target[chars[i]] = trim(pixels, stride, (i % BATCH_COLUMNS) * cell, (i / BATCH_COLUMNS) * cell,
+                        cell, cell, cell / 2 - advance / 2, cell / 2);
+            }
+        }
+    }
+
+    static Glyph trim(byte[] pixels, int width, int height, int originX, int originY) {
+        return trim(pixels, width, 0, 0, width, height, originX, originY);
+    }
+
+    private static Glyph trim(byte[] pixels, int stride, int left, int top, int width, int height,
+            int originX, int originY) {
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = 0; y < height; y++) {
+            int row = (top + y) * stride + left;
+            for (int x = 0; x < width; x++) {
+                if (pixels[row + x] != 0) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (maxX < 0) {
+            return new Glyph(0, 0, 0, 0, new byte[0]);
+        }
+        int trimmedWidth = maxX - minX + 1;
+        int trimmedHeight = maxY - minY + 1;
+        byte[] mask = new byte[trimmedWidth * trimmedHeight];
+        for (int y = 0; y < trimmedHeight; y++) {
+            for (int x = 0; x < trimmedWidth; x++) {
+                mask[y * trimmedWidth + x] = pixels[(top + minY + y) * stride + left + minX + x] != 0 ? (byte) 1 : 0;
+            }
+        }
+        return new Glyph(minX - originX, minY - originY, trimmedWidth, trimmedHeight, mask);
+    }
+
+    static Glyph rotate(Glyph glyph, double angle, int pivotX) {
+        if (glyph.width == 0) {
+            return glyph;
+        }
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double left = glyph.offsetX - pivotX;
+        double top = glyph.offsetY;
+        double right = left + glyph.width;
+        double bottom = top + glyph.height;
+        double minX = Math.min(Math.min(left * cos - top * sin, right * cos - top * sin),
+                Math.min(left * cos - bottom * sin, right * cos - bottom * sin));
+        double maxX = Math.max(Math.max(left * cos - top * sin, right * cos - top * sin),
+                Math.max(left * cos - bottom * sin, right * cos - bottom * sin));
+        double minY = Math.min(Math.min(left * sin + top * cos, right * sin + top * cos),
+                Math.min(left * sin + bottom * cos, right * sin + bottom * cos));
+        double maxY = Math.max(Math.max(left * sin + top * cos, right * sin + top * cos),
+                Math.max(left * sin + bottom * cos, right * sin + bottom * cos));
+        int originX = -(int) Math.floor(minX);
+        int originY = -(int) Math.floor(minY);
+        int width = (int) Math.ceil(maxX) + originX;
+        int height = (int) Math.ceil(maxY) + originY;
+        byte[] pixels = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            double dy = y + 0.5 - originY;
+            for (int x = 0; x < width; x++) {
+                double dx = x + 0.5 - originX;
+                int sx = (int) Math.floor(dx * cos + dy * sin - left);
+                int sy = (int) Math.floor(-dx * sin + dy * cos - top);
+                if (sx >= 0 && sy >= 0 && sx < glyph.width && sy < glyph.height) {
+                    pixels[y * width + x] = glyph.mask[sy * glyph.width + sx];
+                }
+            }
+        }
+        return trim(pixels, width, height, originX - pivotX, originY);
+    }
+
+    private static void applyHints(Graphics2D g2d) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+    }
+}
@@ -0,0 +1,6 @@
+package captcha;
+
+interface IncrementalEncoder {
+
+    EncodeJob begin(byte[] pixels, int width, int height);
+}
@@ -0,0 +1,111 @@
+package captcha;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+final class IndexedRaster extends SoftwareRaster {
+
+    final byte[] pixels;
+
+    IndexedRaster(int width, int height) {
+        this(new byte[width * height], width, height);
+    }
+
+    IndexedRaster(BufferedImage image) {
+        this(((DataBufferByte) image.getRaster().getDataBuffer()).getData(), image.getWidth(), image.getHeight());
+    }
+
+    IndexedRaster(byte[] pixels, int width, int height) {
+        this(pixels, width, height, 0, height);
+    }
+
+    private IndexedRaster(byte[] pixels, int width, int height, int bandY0, int bandY1) {
+        super(width, height, bandY0, bandY1);
+        this.pixels = pixels;
+    }
+
+    @Override
+    public IndexedRaster band(int y, int h) {
+        return new IndexedRaster(pixels, width, height, Math.max(bandY0, y), Math.min(bandY1, y + h));
+    }
+
+    @Override
+    public byte[] pixels() {
+        return pixels;
+    }
+
+    @Override
+    void plot(int offset, int rgb, int alpha) {
+        pixels[offset] = alpha >= 255
+                ? (byte) CaptchaPalette.indexOf(rgb)
+                : CaptchaPalette.blendTable()[CaptchaPalette.blendRow(rgb, alpha) | (pixels[offset] & 0xFF)];
+    }
+
+    @Override
+    void fillRow(int start, int end, int rgb, int alpha) {
+        if (alpha >= 255) {
+            Arrays.fill(pixels, start, end, (byte) CaptchaPalette.indexOf(rgb));
+        } else {
+            byte[] table = CaptchaPalette.blendTable();
+            int blendRow = CaptchaPalette.blendRow(rgb, alpha);
+            for (int offset = start; offset < end; offset++) {
+                pixels[offset] = table[blendRow | (pixels[offset] & 0xFF)];
+            }
+        }
+    }
+
+    @Override
+    void drawMask(GlyphAtlas.Glyph glyph, int left, int top, int startX, int startY, int endX, int endY,
+            int rgb, int alpha) {
+        byte[] mask = glyph.mask;
+        if (alpha >= 255) {
+            byte index = (byte) CaptchaPalette.indexOf(rgb);
+            for (int py = startY; py < endY; py++) {
+                int maskRow = (py - top) * glyph.width - left;
+                int row = py * width;
+                for (int px = startX; px < endX; px++) {
+                    if (mask[maskRow + px] != 0) {
+                        pixels[row + px] = index;
+                    }
+                }
+            }
+        } else {
+            byte[] table = CaptchaPalette.blendTable();
+            int blendRow = CaptchaPalette.blendRow(rgb, alpha);
+            for (int py = startY; py < endY; py++) {
+                int maskRow = (py - top) * glyph.width - left;
+                int row = py * width;
+                for (int px = startX; px < endX; px++) {
+                    if (mask[maskRow + px] != 0) {
+                        pixels[row + px] = table[blendRow | (pixels[row + px] & 0xFF)];
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void copyRow(byte[] source, int sourceOffset, int offset, int length) {
+        System.arraycopy(source, sourceOffset, pixels, offset, length);
+    }
+
+    static byte[] upscale(byte[] pixels, int width, int height, int factor, byte[] scaled) {
+        if (factor == 1) {
+            return pixels;
+        }
+        int scaledWidth = width * factor;
+        if (scaled == null || scaled.length != scaledWidth * height * factor) {
+            scaled = new byte[scaledWidth * height * factor];
+        }
+        for (int y = 0; y < height; y++) {
+            int source = y * width;
+            int target = y * factor * scaledWidth;
+            PixelKernels.ACTIVE.expandRow(pixels, source, scaled, target, width, factor);
+            for (int i = 1; i < factor; i++) {
+                System.arraycopy(scaled, target, scaled, target + i * scaledWidth, scaledWidth);
+            }
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,127 @@
+package captcha;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+final class Java2DCanvas implements CaptchaCanvas {
+
+    private final BufferedImage image;
+    private final SoftwareRaster raster;
+    private final Graphics2D g2d;
+    private final Rectangle band;
+    private final boolean tableBlend;
+    private float strokeWidth = -1;
+    private Color color;
+
+    Java2DCanvas(int width, int height, boolean rgbWorkingRaster) {
+        this(rgbWorkingRaster
+                ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                : new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, CaptchaPalette.colorModel()));
+    }
+
+    private Java2DCanvas(BufferedImage image) {
+        this(image, image.getType() == BufferedImage.TYPE_INT_RGB ? new RgbRaster(image) : new IndexedRaster(image),
+                null);
+    }
+
+    private Java2DCanvas(BufferedImage image, SoftwareRaster raster, Rectangle band) {
+        this.image = image;
+        this.raster = raster;
+        this.band = band;
+        this.tableBlend = raster instanceof IndexedRaster;
+        this.g2d = image.createGraphics();
+        g2d.setClip(band);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height, int rgb, int alpha) {
+        if (alpha < 255 && tableBlend) {
+            raster.fillRect(x, y, width, height, rgb, alpha);
+            return;
+        }
+        g2d.setColor(color(rgb, alpha));
+        g2d.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2, float strokeWidth, int rgb, int alpha) {
+        if (alpha < 255 && tableBlend) {
+            raster.drawLine(x1, y1, x2, y2, strokeWidth, rgb, alpha);
+            return;
+        }
+        if (this.strokeWidth != strokeWidth) {
+            g2d.setStroke(new BasicStroke(strokeWidth));
+            this.strokeWidth = strokeWidth;
+        }
+        g2d.setColor(color(rgb, alpha));
+        g2d.drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawWave(int y, int amplitude, int period, float strokeWidth, int rgb, int alpha) {
+        raster.drawWave(y, amplitude, period, strokeWidth, rgb, alpha);
+    }
+
+    @Override
+    public void drawGlyph(GlyphAtlas.Glyph glyph, int x, int y, int rgb, int alpha) {
+        raster.drawGlyph(glyph, x, y, rgb, alpha);
+    }
+
+    @Override
+    public void drawString(GlyphAtlas.Face face, char[] text, int length, int x, int y, int rgb, int alpha) {
+        raster.drawString(face, text, length, x, y, rgb, alpha);
+    }
+
+    @Override
+    public void drawPixels(byte[] source, int offset, int stride, int x, int y, int width, int height) {
+        raster.drawPixels(source, offset, stride, x, y, width, height);
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        raster.setClip(x, y, width, height);
+        g2d.setClip(band);
+        g2d.clipRect(x, y, width, height);
+    }
+
+    @Override
+    public void resetClip() {
+        raster.resetClip();
+        g2d.setClip(band);
+    }
+
+    @Override
+    public Java2DCanvas band(int y, int height) {
+        SoftwareRaster bandRaster = raster.band(y, height);
+        Rectangle bounds = new Rectangle(0, y, raster.width, height);
+        if (band != null) {
+            bounds = bounds.intersection(band);
+        }
+        return new Java2DCanvas(image, bandRaster, bounds);
+    }
+
+    @Override
+    public byte[] pixels() {
+        return raster.pixels();
+    }
+
+    @Override
+    public void dispose() {
+        g2d.dispose();
+    }
+
+    private Color color(int rgb, int alpha) {
+        int argb = (alpha << 24) | (rgb & 0xFFFFFF);
+        if (color == null || color.getRGB() != argb) {
+            color = new Color(argb, true);
+        }
+        return color;
+    }
+}
@@ -0,0 +1,10 @@
+package captcha;
+
+interface PixelKernels {
+
+    PixelKernels ACTIVE = "scalar".equals(System.getProperty("captcha.pixelKernels"))
+            ? ScalarPixelKernels.INSTANCE
+            : WidePixelKernels.INSTANCE;
+
+    void expandRow(byte[] source, int sourceOffset, byte[] target, int targetOffset, int length, int factor);
+}
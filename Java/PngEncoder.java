@@ -0,0 +1,171 @@
+package captcha;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+final class PngEncoder implements CaptchaEncoder, IncrementalEncoder {
+
+    static final PngEncoder INSTANCE = new PngEncoder();
+
+    private static final int COMPRESSION_LEVEL = 6;
+    private static final byte FILTER_NONE = 0;
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] PLTE_CHUNK = buildChunk("PLTE", CaptchaPalette.rgbTriples());
+    private static final byte[] IEND_CHUNK = buildChunk("IEND", new byte[0]);
+    private static final byte[][] SQUARE_HEADERS = new byte[ZoomLayout.MAX_ZOOM + 1][];
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    static {
+        for (int zoomLevel = ZoomLayout.MIN_ZOOM; zoomLevel <= ZoomLayout.MAX_ZOOM; zoomLevel++) {
+            SQUARE_HEADERS[zoomLevel] = buildHeaderChunk(128 * zoomLevel, 128 * zoomLevel);
+        }
+    }
+
+    private static final class Scratch {
+
+        final Deflater deflater = new Deflater(COMPRESSION_LEVEL, false);
+        final CRC32 crc = new CRC32();
+        byte[] filtered = new byte[0];
+        byte[] output = new byte[0];
+    }
+
+    private PngEncoder() {
+    }
+
+    @Override
+    public int formatId() {
+        return FORMAT_PNG;
+    }
+
+    @Override
+    public byte[] encode(byte[] pixels, int width, int height) {
+        Scratch scratch = SCRATCH.get();
+        int rowLength = width + 1;
+        int filteredLength = rowLength * height;
+        if (scratch.filtered.length < filteredLength) {
+            scratch.filtered = new byte[filteredLength];
+        }
+        byte[] filtered = scratch.filtered;
+        filter(pixels, width, height, filtered);
+
+        byte[] header = headerChunk(width, height);
+        int capacity = capacity(header, filteredLength);
+        if (scratch.output.length < capacity) {
+            scratch.output = new byte[capacity];
+        }
+        byte[] output = scratch.output;
+        int dataOffset = writePrefix(output, header);
+        Deflater deflater = scratch.deflater;
+        deflater.reset();
+        deflater.setInput(filtered, 0, filteredLength);
+        deflater.finish();
+        int dataEnd = dataOffset;
+        while (!deflater.finished()) {
+            if (dataEnd == output.length - IEND_CHUNK.length - 4) {
+                output = Arrays.copyOf(output, output.length * 2);
+                scratch.output = output;
+            }
+            dataEnd += deflater.deflate(output, dataEnd, output.length - IEND_CHUNK.length - 4 - dataEnd);
+        }
+        return Arrays.copyOf(output, writeTrailer(output, dataOffset, dataEnd, scratch.crc));
+    }
+
+    @Override
+    public EncodeJob begin(byte[] pixels, int width, int height) {
+        int filteredLength = (width + 1) * height;
+        byte[] filtered = new byte[filteredLength];
+        filter(pixels, width, height, filtered);
+        byte[] header = headerChunk(width, height);
+        byte[] prefix = new byte[SIGNATURE.length + header.length + PLTE_CHUNK.length + 8];
+        writePrefix(prefix, header);
+        return new DeflateJob(COMPRESSION_LEVEL, filtered, filteredLength, prefix, capacity(header, filteredLength)) {
+
+            @Override
+            byte[] complete(byte[] output, int dataStart, int dataEnd) {
+                byte[] png = Arrays.copyOf(output, dataEnd + 4 + IEND_CHUNK.length);
+                writeTrailer(png, dataStart, dataEnd, new CRC32());
+                return png;
+            }
+        };
+    }
+
+    private static void filter(byte[] pixels, int width, int height, byte[] filtered) {
+        int rowLength = width + 1;
+        for (int y = 0; y < height; y++) {
+            filtered[y * rowLength] = FILTER_NONE;
+            System.arraycopy(pixels, y * width, filtered, y * rowLength + 1, width);
+        }
+    }
+
+    private static int capacity(byte[] header, int filteredLength) {
+        int bound = filteredLength + (filteredLength >> 12) + (filteredLength >> 14) + 64;
+        return SIGNATURE.length + header.length + PLTE_CHUNK.length + 12 + bound + IEND_CHUNK.length;
+    }
+
+    private static int writePrefix(byte[] output, byte[] header) {
+        int position = 0;
+        System.arraycopy(SIGNATURE, 0, output, position, SIGNATURE.length);
+        position += SIGNATURE.length;
+        System.arraycopy(header, 0, output, position, header.length);
+        position += header.length;
+        System.arraycopy(PLTE_CHUNK, 0, output, position, PLTE_CHUNK.length);
+        position += PLTE_CHUNK.length;
+        System.arraycopy(IDAT, 0, output, position + 4, IDAT.length);
+        return position + 8;
+    }
+
+    private static int writeTrailer(byte[] output, int dataOffset, int dataEnd, CRC32 crc) {
+        int lengthOffset = dataOffset - 8;
+        writeInt(output, lengthOffset, dataEnd - dataOffset);
+        crc.reset();
+        crc.update(output, lengthOffset + 4, dataEnd - lengthOffset - 4);
+        writeInt(output, dataEnd, (int) crc.getValue());
+        int position = dataEnd + 4;
+        System.arraycopy(IEND_CHUNK, 0, output, position, IEND_CHUNK.length);
+        return position + IEND_CHUNK.length;
+    }
+
+    private static byte[] headerChunk(int width, int height) {
+        if (width == height && width % 128 == 0) {
+            int zoomLevel = width / 128;
+            if (zoomLevel >= ZoomLayout.MIN_ZOOM && zoomLevel <= ZoomLayout.MAX_ZOOM) {
+                return SQUARE_HEADERS[zoomLevel];
+            }
+        }
+        return buildHeaderChunk(width, height);
+    }
+
+    private static byte[] buildHeaderChunk(int width, int height) {
+        byte[] data = new byte[13];
+        writeInt(data, 0, width);
+        writeInt(data, 4, height);
+        data[8] = 8;
+        data[9] = 3;
+        data[10] = 0;
+        data[11] = 0;
+        data[12] = 0;
+        return buildChunk("IHDR", data);
+    }
+
+    private static byte[] buildChunk(String type, byte[] data) {
+        byte[] chunk = new byte[data.length + 12];
+        writeInt(chunk, 0, data.length);
+        for (int i = 0; i < 4; i++) {
+            chunk[4 + i] = (byte) type.charAt(i);
+        }
+        System.arraycopy(data, 0, chunk, 8, data.length);
+        CRC32 crc = new CRC32();
+        crc.update(chunk, 4, data.length + 4);
+        writeInt(chunk, data.length + 8, (int) crc.getValue());
+        return chunk;
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,10 @@
+package captcha;
+
+import java.util.random.RandomGenerator;
+
+interface RandomSource extends RandomGenerator {
+
+    static long strongSeed() {
+        return StrongRandomSource.INSTANCE.nextLong();
+    }
+}
@@ -0,0 +1,86 @@
+package captcha;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+final class RawPaletteEncoder implements CaptchaEncoder, IncrementalEncoder {
+
+    static final RawPaletteEncoder INSTANCE = new RawPaletteEncoder();
+
+    private static final byte[] MAGIC = {'C', 'P', 'R', 'W'};
+    private static final byte VERSION = 1;
+    private static final byte[] PALETTE = CaptchaPalette.rgbTriples();
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 2 + 2 + 2;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, false);
+        byte[] output = new byte[0];
+    }
+
+    private RawPaletteEncoder() {
+    }
+
+    @Override
+    public int formatId() {
+        return FORMAT_RAW;
+    }
+
+    @Override
+    public byte[] encode(byte[] pixels, int width, int height) {
+        Scratch scratch = SCRATCH.get();
+        int pixelCount = width * height;
+        int capacity = HEADER_LENGTH + PALETTE.length + pixelCount + (pixelCount >> 12) + 64;
+        if (scratch.output.length < capacity) {
+            scratch.output = new byte[capacity];
+        }
+        byte[] output = scratch.output;
+        int position = writeHeader(output, width, height);
+
+        Deflater deflater = scratch.deflater;
+        deflater.reset();
+        deflater.setInput(pixels, 0, pixelCount);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (position == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+                scratch.output = output;
+            }
+            position += deflater.deflate(output, position, output.length - position);
+        }
+        return Arrays.copyOf(output, position);
+    }
+
+    @Override
+    public EncodeJob begin(byte[] pixels, int width, int height) {
+        int pixelCount = width * height;
+        byte[] prefix = new byte[HEADER_LENGTH + PALETTE.length];
+        writeHeader(prefix, width, height);
+        return new DeflateJob(Deflater.BEST_SPEED, pixels, pixelCount, prefix,
+                prefix.length + pixelCount + (pixelCount >> 12) + 64) {
+
+            @Override
+            byte[] complete(byte[] output, int dataStart, int dataEnd) {
+                return Arrays.copyOf(output, dataEnd);
+            }
+        };
+    }
+
+    private static int writeHeader(byte[] output, int width, int height) {
+        System.arraycopy(MAGIC, 0, output, 0, MAGIC.length);
+        int position = MAGIC.length;
+        output[position++] = VERSION;
+        position = writeShort(output, position, width);
+        position = writeShort(output, position, height);
+        position = writeShort(output, position, CaptchaPalette.SIZE);
+        System.arraycopy(PALETTE, 0, output, position, PALETTE.length);
+        return position + PALETTE.length;
+    }
+
+    private static int writeShort(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 8);
+        target[offset + 1] = (byte) value;
+        return offset + 2;
+    }
+}
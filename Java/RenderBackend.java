@@ -0,0 +1,7 @@
+package captcha;
+
+public enum RenderBackend {
+    JAVA2D,
+    JAVA2D_RGB,
+    SOFTWARE
+}
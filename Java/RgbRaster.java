@@ -0,0 +1,83 @@
+package captcha;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+final class RgbRaster extends SoftwareRaster {
+
+    final int[] rgb;
+    private final byte[] indexed;
+
+    RgbRaster(BufferedImage image) {
+        this(((DataBufferInt) image.getRaster().getDataBuffer()).getData(),
+                new byte[image.getWidth() * image.getHeight()], image.getWidth(), image.getHeight(), 0,
+                image.getHeight());
+    }
+
+    private RgbRaster(int[] rgb, byte[] indexed, int width, int height, int bandY0, int bandY1) {
+        super(width, height, bandY0, bandY1);
+        this.rgb = rgb;
+        this.indexed = indexed;
+    }
+
+    @Override
+    public RgbRaster band(int y, int h) {
+        return new RgbRaster(rgb, indexed, width, height, Math.max(bandY0, y), Math.min(bandY1, y + h));
+    }
+
+    @Override
+    public byte[] pixels() {
+        int end = bandY1 * width;
+        for (int i = bandY0 * width; i < end; i++) {
+            indexed[i] = (byte) CaptchaPalette.indexOf(rgb[i]);
+        }
+        return indexed;
+    }
+
+    @Override
+    void plot(int offset, int color, int alpha) {
+        rgb[offset] = alpha >= 255 ? color & 0xFFFFFF : blend(rgb[offset], color, alpha);
+    }
+
+    @Override
+    void fillRow(int start, int end, int color, int alpha) {
+        if (alpha >= 255) {
+            Arrays.fill(rgb, start, end, color & 0xFFFFFF);
+        } else {
+            for (int offset = start; offset < end; offset++) {
+                rgb[offset] = blend(rgb[offset], color, alpha);
+            }
+        }
+    }
+
+    @Override
+    void drawMask(GlyphAtlas.Glyph glyph, int left, int top, int startX, int startY, int endX, int endY,
+            int color, int alpha) {
+        byte[] mask = glyph.mask;
+        for (int py = startY; py < endY; py++) {
+            int maskRow = (py - top) * glyph.width - left;
+            int row = py * width;
+            for (int px = startX; px < endX; px++) {
+                if (mask[maskRow + px] != 0) {
+                    rgb[row + px] = alpha >= 255 ? color & 0xFFFFFF : blend(rgb[row + px], color, alpha);
+                }
+            }
+        }
+    }
+
+    @Override
+    void copyRow(byte[] source, int sourceOffset, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            rgb[offset + i] = CaptchaPalette.rgbOf(source[sourceOffset + i] & 0xFF);
+        }
+    }
+
+    private static int blend(int dst, int src, int alpha) {
+        int inverse = 255 - alpha;
+        int r = (((src >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inverse) / 255;
+        int g = (((src >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inverse) / 255;
+        int b = ((src & 0xFF) * alpha + (dst & 0xFF) * inverse) / 255;
+        return (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,21 @@
+package captcha;
+
+final class ScalarPixelKernels implements PixelKernels {
+
+    static final ScalarPixelKernels INSTANCE = new ScalarPixelKernels();
+
+    private ScalarPixelKernels() {
+    }
+
+    @Override
+    public void expandRow(byte[] source, int sourceOffset, byte[] target, int targetOffset, int length,
+            int factor) {
+        for (int x = 0; x < length; x++) {
+            byte index = source[sourceOffset + x];
+            int offset = targetOffset + x * factor;
+            for (int i = 0; i < factor; i++) {
+                target[offset + i] = index;
+            }
+        }
+    }
+}
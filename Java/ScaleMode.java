@@ -0,0 +1,6 @@
+package captcha;
+
+public enum ScaleMode {
+    NATIVE,
+    UPSCALE
+}
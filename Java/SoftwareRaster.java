@@ -0,0 +1,206 @@
+package captcha;
+
+abstract class SoftwareRaster implements CaptchaCanvas {
+
+    final int width;
+    final int height;
+    final int bandY0;
+    final int bandY1;
+    int clipX0;
+    int clipY0;
+    int clipX1;
+    int clipY1;
+
+    SoftwareRaster(int width, int height, int bandY0, int bandY1) {
+        this.width = width;
+        this.height = height;
+        this.bandY0 = bandY0;
+        this.bandY1 = bandY1;
+        resetClip();
+    }
+
+    abstract void plot(int offset, int rgb, int alpha);
+
+    abstract void fillRow(int start, int end, int rgb, int alpha);
+
+    abstract void drawMask(GlyphAtlas.Glyph glyph, int left, int top, int startX, int startY, int endX, int endY,
+            int rgb, int alpha);
+
+    abstract void copyRow(byte[] source, int sourceOffset, int offset, int length);
+
+    @Override
+    public abstract SoftwareRaster band(int y, int height);
+
+    @Override
+    public void setClip(int x, int y, int w, int h) {
+        clipX0 = Math.max(0, x);
+        clipY0 = Math.max(bandY0, y);
+        clipX1 = Math.min(width, x + w);
+        clipY1 = Math.min(bandY1, y + h);
+    }
+
+    @Override
+    public void resetClip() {
+        clipX0 = 0;
+        clipY0 = bandY0;
+        clipX1 = width;
+        clipY1 = bandY1;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void fillRect(int x, int y, int w, int h, int rgb, int alpha) {
+        int endY = Math.min(clipY1, y + h);
+        for (int py = Math.max(clipY0, y); py < endY; py++) {
+            fillSpan(py, x, x + w, rgb, alpha);
+        }
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2, float strokeWidth, int rgb, int alpha) {
+        if (strokeWidth <= 1f) {
+            drawThinLine(x1, y1, x2, y2, rgb, alpha);
+            return;
+        }
+        double half = strokeWidth / 2.0;
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        double ux = length == 0 ? 1 : dx / length;
+        double uy = length == 0 ? 0 : dy / length;
+        double ax = x1 + 0.5 - ux * half;
+        double ay = y1 + 0.5 - uy * half;
+        double bx = x2 + 0.5 + ux * half;
+        double by = y2 + 0.5 + uy * half;
+        double nx = -uy * half;
+        double ny = ux * half;
+        fillConvexQuad(ax + nx, ay + ny, bx + nx, by + ny, bx - nx, by - ny, ax - nx, ay - ny, rgb, alpha);
+    }
+
+    @Override
+    public void drawWave(int y, int amplitude, int period, float strokeWidth, int rgb, int alpha) {
+        int thickness = Math.max(1, Math.round(strokeWidth));
+        int above = (thickness - 1) / 2;
+        int below = thickness / 2 + 1;
+        int step = Waveform.step(period);
+        int phase = 0;
+        int current = y + Waveform.offset(phase, amplitude);
+        for (int x = 0; x < clipX1; x++) {
+            phase += step;
+            int next = y + Waveform.offset(phase, amplitude);
+            if (x >= clipX0) {
+                int startY = Math.max(clipY0, Math.min(current, next) - above);
+                int endY = Math.min(clipY1, Math.max(current, next) + below);
+                for (int py = startY; py < endY; py++) {
+                    plot(py * width + x, rgb, alpha);
+                }
+            }
+            current = next;
+        }
+    }
+
+    @Override
+    public void drawGlyph(GlyphAtlas.Glyph glyph, int x, int y, int rgb, int alpha) {
+        int left = x + glyph.offsetX;
+        int top = y + glyph.offsetY;
+        int startX = Math.max(clipX0, left);
+        int startY = Math.max(clipY0, top);
+        int endX = Math.min(clipX1, left + glyph.width);
+        int endY = Math.min(clipY1, top + glyph.height);
+        if (startX >= endX || startY >= endY) {
+            return;
+        }
+        drawMask(glyph, left, top, startX, startY, endX, endY, rgb, alpha);
+    }
+
+    @Override
+    public void drawString(GlyphAtlas.Face face, char[] text, int length, int x, int y, int rgb, int alpha) {
+        int drawX = x;
+        for (int i = 0; i < length; i++) {
+            char ch = text[i];
+            drawGlyph(face.glyph(ch), drawX, y, rgb, alpha);
+            drawX += face.charWidth(ch);
+        }
+    }
+
+    @Override
+    public void drawPixels(byte[] source, int offset, int stride, int x, int y, int w, int h) {
+        int startX = Math.max(clipX0, x);
+        int endX = Math.min(clipX1, x + w);
+        if (startX >= endX) {
+            return;
+        }
+        int endY = Math.min(clipY1, y + h);
+        for (int py = Math.max(clipY0, y); py < endY; py++) {
+            copyRow(source, offset + (py - y) * stride + startX - x, py * width + startX, endX - startX);
+        }
+    }
+
+    private void drawThinLine(int x1, int y1, int x2, int y2, int rgb, int alpha) {
+        int dx = Math.abs(x2 - x1);
+        int dy = -Math.abs(y2 - y1);
+        int stepX = x1 < x2 ? 1 : -1;
+        int stepY = y1 < y2 ? 1 : -1;
+        int error = dx + dy;
+        int x = x1;
+        int y = y1;
+        while (true) {
+            if (x >= clipX0 && x < clipX1 && y >= clipY0 && y < clipY1) {
+                plot(y * width + x, rgb, alpha);
+            }
+            if (x == x2 && y == y2) {
+                return;
+            }
+            int doubled = 2 * error;
+            if (doubled >= dy) {
+                error += dy;
+                x += stepX;
+            }
+            if (doubled <= dx) {
+                error += dx;
+                y += stepY;
+            }
+        }
+    }
+
+    private void fillConvexQuad(double x0, double y0, double x1, double y1, double x2, double y2,
+            double x3, double y3, int rgb, int alpha) {
+        double[] xs = {x0, x1, x2, x3};
+        double[] ys = {y0, y1, y2, y3};
+        double minY = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+        double maxY = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+        int startY = Math.max(clipY0, (int) Math.ceil(minY - 0.5));
+        int endY = Math.min(clipY1, (int) Math.ceil(maxY - 0.5));
+        for (int py = startY; py < endY; py++) {
+            double sampleY = py + 0.5;
+            double left = Double.POSITIVE_INFINITY;
+            double right = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < 4; i++) {
+                int j = (i + 1) & 3;
+                double ya = ys[i];
+                double yb = ys[j];
+                if ((ya <= sampleY && sampleY < yb) || (yb <= sampleY && sampleY < ya)) {
+                    double crossX = xs[i] + (sampleY - ya) * (xs[j] - xs[i]) / (yb - ya);
+                    left = Math.min(left, crossX);
+                    right = Math.max(right, crossX);
+                }
+            }
+            if (left < right) {
+                fillSpan(py, (int) Math.ceil(left - 0.5), (int) Math.ceil(right - 0.5), rgb, alpha);
+            }
+        }
+    }
+
+    private void fillSpan(int y, int x0, int x1, int rgb, int alpha) {
+        int startX = Math.max(clipX0, x0);
+        int endX = Math.min(clipX1, x1);
+        if (startX >= endX) {
+            return;
+        }
+        int row = y * width;
+        fillRow(row + startX, row + endX, rgb, alpha);
+    }
+}
@@ -0,0 +1,18 @@
+package captcha;
+
+import java.security.SecureRandom;
+
+final class StrongRandomSource implements RandomSource {
+
+    static final StrongRandomSource INSTANCE = new StrongRandomSource();
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private StrongRandomSource() {
+    }
+
+    @Override
+    public long nextLong() {
+        return secureRandom.nextLong();
+    }
+}
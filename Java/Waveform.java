@@ -0,0 +1,26 @@
+package captcha;
+
+final class Waveform {
+
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int PHASE_SHIFT = 32 - TABLE_BITS;
+    private static final double[] SINE = new double[TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            SINE[i] = Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+    }
+
+    private Waveform() {
+    }
+
+    static int step(int period) {
+        return (int) ((1L << 32) / period);
+    }
+
+    static int offset(int phase, int amplitude) {
+        return (int) (amplitude * SINE[phase >>> PHASE_SHIFT]);
+    }
+}
@@ -0,0 +1,42 @@
+package captcha;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+final class WidePixelKernels implements PixelKernels {
+
+    static final WidePixelKernels INSTANCE = new WidePixelKernels();
+
+    private static final VarHandle SHORTS = MethodHandles.byteArrayViewVarHandle(short[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private WidePixelKernels() {
+    }
+
+    @Override
+    public void expandRow(byte[] source, int sourceOffset, byte[] target, int targetOffset, int length,
+            int factor) {
+        int x = 0;
+        if (factor == 2) {
+            for (; x + 4 <= length; x += 4) {
+                long word = (int) INTS.get(source, sourceOffset + x) & 0xFFFFFFFFL;
+                word = (word | (word << 16)) & 0x0000FFFF0000FFFFL;
+                word = (word | (word << 8)) & 0x00FF00FF00FF00FFL;
+                LONGS.set(target, targetOffset + 2 * x, word | (word << 8));
+            }
+        } else if (factor == 4) {
+            for (; x + 2 <= length; x += 2) {
+                long word = (short) SHORTS.get(source, sourceOffset + x) & 0xFFFFL;
+                word = (word | (word << 24)) & 0x000000FF000000FFL;
+                LONGS.set(target, targetOffset + 4 * x, word * 0x01010101L);
+            }
+        }
+        ScalarPixelKernels.INSTANCE.expandRow(source, sourceOffset + x, target, targetOffset + x * factor,
+                length - x, factor);
+    }
+}
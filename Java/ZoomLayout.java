@@ -0,0 +1,175 @@
+package captcha;
+
+import java.awt.Font;
+
+final class ZoomLayout {
+
+    static final String FONT_FAMILY = "Arial";
+    static final int MIN_ZOOM = 1;
+    static final int MAX_ZOOM = 4;
+
+    private static final double DISPLAY_MIN_ANGLE = 0.1;
+    private static final double FILL_MAX_ANGLE = 0.15;
+
+    private static final ZoomLayout[][] LAYOUTS =
+            new ZoomLayout[RenderBackend.values().length][MAX_ZOOM - MIN_ZOOM + 1];
+
+    final int zoomLevel;
+    final FillLayout topFill;
+    final FillLayout bottomFill;
+    final GlyphAtlas.Face keyValueFace;
+    final GlyphAtlas.Face displayFace;
+    final GlyphAtlas.Face shadowFace;
+    private final GlyphAtlas.Face[] rowFaces;
+    private final int[] rowSteps;
+    private int preparedRows;
+    private volatile boolean prepared;
+
+    static final class FillLayout {
+
+        final GlyphAtlas.Face face;
+        final int fontSize;
+        final int charHeight;
+        final int numberOfLines;
+        final int avgCharWidth;
+        final int charsPerLine;
+        private final RenderBackend backend;
+        private final int fontStyle;
+        private final int zoomLevel;
+        private final int minScaledSize;
+        private final GlyphAtlas.Face[] scaledFaces;
+
+        FillLayout(RenderBackend backend, int targetWidth, int maxHeight, boolean isBold, boolean isBottomArea,
+                int zoomLevel) {
+            int fontStyle = isBold ? Font.BOLD : Font.PLAIN;
+            int baseFontSize = isBottomArea ? 12 : 9;
+            int size = baseFontSize * zoomLevel;
+            int lines;
+            do {
+                GlyphAtlas.Face candidate = face(backend, fontStyle, size, zoomLevel);
+                lines = maxHeight / candidate.ascent;
+                size++;
+            } while (lines < 3 && size < 25 * zoomLevel);
+            size--;
+            this.fontSize = size;
+            this.face = face(backend, fontStyle, size, zoomLevel);
+            this.charHeight = face.ascent;
+            this.numberOfLines = (maxHeight / charHeight) + (isBottomArea ? 4 : 2);
+            this.avgCharWidth = face.charWidth('A');
+            this.charsPerLine = (targetWidth / avgCharWidth) + 3;
+            this.backend = backend;
+            this.fontStyle = fontStyle;
+            this.zoomLevel = zoomLevel;
+            this.minScaledSize = Math.round(size * 0.7f);
+            int maxScaledSize = Math.round(size * 1.3f);
+            this.scaledFaces = new GlyphAtlas.Face[maxScaledSize - minScaledSize + 1];
+        }
+
+        GlyphAtlas.Face scaledFace(float scale) {
+            int index = Math.round(fontSize * scale) - minScaledSize;
+            return scaledFace(Math.max(0, Math.min(scaledFaces.length - 1, index)));
+        }
+
+        private GlyphAtlas.Face scaledFace(int index) {
+            GlyphAtlas.Face scaled = scaledFaces[index];
+            if (scaled == null) {
+                scaled = face(backend, fontStyle, minScaledSize + index, zoomLevel);
+                scaledFaces[index] = scaled;
+            }
+            return scaled;
+        }
+    }
+
+    private ZoomLayout(RenderBackend backend, int zoomLevel) {
+        int width = 128 * zoomLevel;
+        this.zoomLevel = zoomLevel;
+        this.topFill = new FillLayout(backend, width, 32 * zoomLevel, true, false, zoomLevel);
+        this.bottomFill = new FillLayout(backend, width, 54 * zoomLevel, false, true, zoomLevel);
+        this.keyValueFace = face(backend, Font.PLAIN, 13 * zoomLevel, zoomLevel);
+        this.displayFace = face(backend, Font.BOLD, 20 * zoomLevel, zoomLevel);
+        this.shadowFace = face(backend, Font.BOLD, 8 * zoomLevel, zoomLevel);
+        int displayFrom = GlyphAtlas.step(DISPLAY_MIN_ANGLE);
+        int displayTo = GlyphAtlas.step(GlyphAtlas.MAX_ANGLE);
+        int fillTo = GlyphAtlas.step(FILL_MAX_ANGLE);
+        int rows = 2 * (displayTo - displayFrom + 1) + 2 * fillTo + 5;
+        this.rowFaces = new GlyphAtlas.Face[rows];
+        this.rowSteps = new int[rows];
+        int index = addRows(displayFace, -displayTo, -displayFrom, 0);
+        index = addRows(displayFace, 0, 0, index);
+        index = addRows(displayFace, displayFrom, displayTo, index);
+        index = addRows(bottomFill.face, -fillTo, fillTo, index);
+        index = addRows(topFill.face, 0, 0, index);
+        index = addRows(keyValueFace, 0, 0, index);
+        addRows(shadowFace, 0, 0, index);
+    }
+
+    static ZoomLayout of(int zoomLevel, RenderBackend backend) {
+        if (zoomLevel < MIN_ZOOM || zoomLevel > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom level must be between 1 and 4");
+        }
+        ZoomLayout[] layouts = LAYOUTS[backend.ordinal()];
+        ZoomLayout layout = layouts[zoomLevel - MIN_ZOOM];
+        if (layout == null) {
+            synchronized (LAYOUTS) {
+                layout = layouts[zoomLevel - MIN_ZOOM];
+                if (layout == null) {
+                    layout = new ZoomLayout(backend, zoomLevel);
+                    layouts[zoomLevel - MIN_ZOOM] = layout;
+                }
+            }
+        }
+        return layout;
+    }
+
+    boolean prepareGlyphRow() {
+        if (prepared) {
+            return true;
+        }
+        synchronized (this) {
+            if (preparedRows < rowCount()) {
+                prepareRow(preparedRows);
+            }
+            return prepared;
+        }
+    }
+
+    void prepareGlyphRows() {
+        if (prepared) {
+            return;
+        }
+        synchronized (this) {
+            while (preparedRows < rowCount()) {
+                prepareRow(preparedRows);
+            }
+        }
+    }
+
+    private int addRows(GlyphAtlas.Face face, int fromStep, int toStep, int index) {
+        for (int step = fromStep; step <= toStep; step++) {
+            rowFaces[index] = face;
+            rowSteps[index++] = step;
+        }
+        return index;
+    }
+
+    private int rowCount() {
+        return rowSteps.length + bottomFill.scaledFaces.length;
+    }
+
+    private void prepareRow(int index) {
+        if (index < rowSteps.length) {
+            rowFaces[index].prepare(rowSteps[index]);
+        } else {
+            bottomFill.scaledFace(index - rowSteps.length).prepare(0);
+        }
+        preparedRows = index + 1;
+        prepared = preparedRows == rowCount();
+    }
+
+    private static GlyphAtlas.Face face(RenderBackend backend, int style, int size, int zoomLevel) {
+        if (backend == RenderBackend.SOFTWARE) {
+            return BitmapFont.face(style == Font.BOLD, size);
+        }
+        return GlyphAtlas.face(FONT_FAMILY, style, size, zoomLevel);
+    }
+}